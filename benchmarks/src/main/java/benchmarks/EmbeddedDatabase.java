@@ -0,0 +1,81 @@
+package benchmarks;
+
+import ch.vorburger.mariaDB4j.DB;
+import ch.vorburger.mariaDB4j.DBConfigurationBuilder;
+import util.DatabaseConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// A throwaway MariaDB server loaded with the application schema, which the application is then pointed at
+public class EmbeddedDatabase implements AutoCloseable {
+    private static final String SCHEMA_RESOURCE = "/schema/CCINFOM S14-GROUP 5-sql.sql";
+    private static final String USER = "root";
+    private static final String PASSWORD = "";
+
+    private final DB db;
+    private final String serverUrl;
+
+    private EmbeddedDatabase(DB db, int port) {
+        this.db = db;
+        this.serverUrl = "jdbc:mysql://localhost:" + port + "/";
+    }
+
+    public static EmbeddedDatabase start() throws Exception {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // Any free port
+        DB db = DB.newEmbeddedDB(config.build());
+        db.start();
+
+        EmbeddedDatabase database = new EmbeddedDatabase(db, db.getConfiguration().getPort());
+        database.loadSchema();
+
+        // Must be set before the application opens its connection pool
+        System.setProperty("restaurant.db.url", database.serverUrl + "restaurantdb?rewriteBatchedStatements=true");
+        System.setProperty("restaurant.db.user", USER);
+        System.setProperty("restaurant.db.password", PASSWORD);
+        return database;
+    }
+
+    // The script drops and recreates restaurantdb, so it runs on a server-level connection
+    private void loadSchema() throws SQLException, IOException {
+        String script;
+        try (InputStream in = EmbeddedDatabase.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Schema script not found on the classpath: " + SCHEMA_RESOURCE);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (Connection conn = DriverManager.getConnection(serverUrl + "?allowMultiQueries=true", USER, PASSWORD);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(script);
+        }
+    }
+
+    // Connection outside the application's pool, for seeding and resetting data between iterations
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(serverUrl + "restaurantdb?rewriteBatchedStatements=true", USER, PASSWORD);
+    }
+
+    // Sets every ingredient's stock outside the application, which must reload its stock view afterwards
+    public void restock(double quantity) throws SQLException {
+        try (Connection conn = openConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE Ingredients SET quantity_in_stock = ?")) {
+            stmt.setDouble(1, quantity);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        DatabaseConnection.closeConnection();
+        db.stop();
+    }
+}
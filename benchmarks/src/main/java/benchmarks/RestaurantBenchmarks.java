@@ -0,0 +1,150 @@
+package benchmarks;
+
+import controller.RestaurantController;
+import dao.DishAvailability;
+import dao.OrderDAO;
+import model.Order;
+import model.OrderItem;
+import model.ReportPeriod;
+import org.openjdk.jmh.annotations.*;
+import util.SyntheticDataGenerator;
+
+import javax.swing.table.DefaultTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Baseline throughput and latency for order placement, order listing and the sales report.
+// Every benchmark forks its own JVM and embedded database, so orders placed by createOrder
+// never leak into the listing or report numbers.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RestaurantBenchmarks {
+    private static final long SEED = 42L;
+    // Large enough that no benchmark iteration can run an ingredient out
+    private static final double BENCHMARK_STOCK = 50_000_000;
+    private static final String[] SALES_REPORT_COLUMNS = {
+        "Sales Date", "Total Sales", "Average Sales", "Top Product", "Units Sold"
+    };
+
+    @State(Scope.Benchmark)
+    public static class Restaurant {
+        @Param({"10000", "100000"})
+        public int orders;
+
+        EmbeddedDatabase database;
+        RestaurantController controller;
+        OrderDAO orderDAO;
+        final List<Integer> dishIds = new ArrayList<>();
+        final List<Double> dishPrices = new ArrayList<>();
+        ReportPeriod thisYear;
+        ReportPeriod thisMonth;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            database = EmbeddedDatabase.start();
+            try (Connection conn = database.openConnection()) {
+                SyntheticDataGenerator generator = new SyntheticDataGenerator(SEED);
+                generator.setOrders(orders);
+                generator.generate(conn);
+                try (PreparedStatement stmt = conn.prepareStatement("""
+                        SELECT d.dish_id, d.selling_price
+                        FROM Dishes d
+                        WHERE d.is_deleted = FALSE
+                        AND EXISTS (SELECT 1 FROM DishIngredients di WHERE di.dish_id = d.dish_id)
+                        ORDER BY d.dish_id
+                    """);
+                     ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        dishIds.add(rs.getInt("dish_id"));
+                        dishPrices.add(rs.getDouble("selling_price"));
+                    }
+                }
+            }
+
+            controller = new RestaurantController();
+            orderDAO = new OrderDAO();
+
+            LocalDate today = LocalDate.now();
+            thisYear = ReportPeriod.of(today.getYear(), 0, 0);
+            thisMonth = ReportPeriod.of(today.getYear(), today.getMonthValue(), 0);
+        }
+
+        // Keep createOrder from ever failing the stock check, however long a run takes
+        @Setup(Level.Iteration)
+        public void restock() throws Exception {
+            database.restock(BENCHMARK_STOCK);
+            try (Connection conn = database.openConnection()) {
+                DishAvailability.getInstance().loadAll(conn);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            database.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OrderInput {
+        private final Random random = new Random(SEED);
+
+        Order nextOrder(Restaurant restaurant) {
+            Order order = new Order();
+            order.setCustomerId(1 + random.nextInt(5));
+            order.setOrderType("Dine-In");
+            order.setOrderStatus("In Progress");
+            order.setPaymentStatus("Pending");
+
+            int lines = 1 + random.nextInt(3);
+            int first = random.nextInt(restaurant.dishIds.size());
+            double total = 0;
+            for (int i = 0; i < lines && i < restaurant.dishIds.size(); i++) {
+                int index = (first + i) % restaurant.dishIds.size();
+                int quantity = 1 + random.nextInt(2);
+                double price = restaurant.dishPrices.get(index);
+                order.getItems().add(new OrderItem(0, restaurant.dishIds.get(index), quantity, price));
+                total += quantity * price;
+            }
+            order.setTotalAmount(total);
+            order.getAssignedEmployees().add(1);
+            return order;
+        }
+    }
+
+    @Benchmark
+    public int createOrder(Restaurant restaurant, OrderInput input) {
+        int orderId = restaurant.orderDAO.createOrder(input.nextOrder(restaurant));
+        if (orderId < 0) {
+            throw new IllegalStateException("createOrder failed");
+        }
+        return orderId;
+    }
+
+    @Benchmark
+    public List<Order> getAllOrders(Restaurant restaurant) {
+        return restaurant.orderDAO.getAllOrders();
+    }
+
+    @Benchmark
+    public DefaultTableModel salesReportForYear(Restaurant restaurant) {
+        DefaultTableModel model = new DefaultTableModel(SALES_REPORT_COLUMNS, 0);
+        restaurant.controller.generateSalesReport(restaurant.thisYear, model);
+        return model;
+    }
+
+    @Benchmark
+    public DefaultTableModel salesReportForMonth(Restaurant restaurant) {
+        DefaultTableModel model = new DefaultTableModel(SALES_REPORT_COLUMNS, 0);
+        restaurant.controller.generateSalesReport(restaurant.thisMonth, model);
+        return model;
+    }
+}
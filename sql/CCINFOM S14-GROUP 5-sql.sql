@@ -60,7 +60,9 @@ CREATE TABLE IF NOT EXISTS `Orders` (
     payment_method ENUM('Cash', 'Credit Card') NULL,
     payment_status ENUM('Pending', 'Paid') NOT NULL DEFAULT 'Pending',
     is_deleted BOOLEAN DEFAULT FALSE,
-    FOREIGN KEY (customer_id) REFERENCES Customers(customer_id)
+    FOREIGN KEY (customer_id) REFERENCES Customers(customer_id),
+    -- Keyset pagination of order history walks this index newest-first
+    INDEX idx_orders_datetime (order_datetime, order_id)
 );
 
 -- Core tables for supplier management
@@ -101,7 +103,11 @@ CREATE TABLE IF NOT EXISTS `IngredientBatches` (
     remaining_quantity DECIMAL(10,2) NOT NULL,
     status ENUM('Available', 'Low', 'Expired', 'Depleted') DEFAULT 'Available',
     FOREIGN KEY (ingredient_id) REFERENCES Ingredients(ingredient_id),
-    FOREIGN KEY (supplier_id) REFERENCES Suppliers(supplier_id)
+    FOREIGN KEY (supplier_id) REFERENCES Suppliers(supplier_id),
+    -- Open batches of an ingredient, first expiring first, for consumption at checkout
+    INDEX idx_batches_fefo (ingredient_id, status, expiry_date),
+    -- Open batches by expiry date, for the expiry sweeper and expiring-batch lists
+    INDEX idx_batches_expiry (status, expiry_date)
 );
 
 CREATE TABLE IF NOT EXISTS `IngredientSuppliers` (
@@ -143,6 +149,8 @@ CREATE TABLE IF NOT EXISTS `OrderItems` (
     dish_id INT NOT NULL,
     quantity INT NOT NULL CHECK (quantity > 0),
     price_at_time DECIMAL(10,2) NOT NULL,
+    -- Dish cost when the order was placed, for the sales rollup
+    cost_at_time DECIMAL(10,2) NOT NULL,
     PRIMARY KEY (order_id, dish_id),
     FOREIGN KEY (order_id) REFERENCES Orders(order_id),
     FOREIGN KEY (dish_id) REFERENCES Dishes(dish_id)
@@ -167,10 +175,40 @@ CREATE TABLE IF NOT EXISTS `IngredientTransactions` (
     order_id INT,
     employee_id INT NOT NULL,
     notes TEXT,
+    -- Usage taken from the in-memory stock ledger and not yet subtracted from Ingredients
+    stock_pending BOOLEAN NOT NULL DEFAULT FALSE,
     FOREIGN KEY (ingredient_id) REFERENCES Ingredients(ingredient_id),
     FOREIGN KEY (supplier_id) REFERENCES Suppliers(supplier_id),
     FOREIGN KEY (order_id) REFERENCES Orders(order_id),
-    FOREIGN KEY (employee_id) REFERENCES Employees(employee_id)
+    FOREIGN KEY (employee_id) REFERENCES Employees(employee_id),
+    INDEX idx_transactions_pending (stock_pending, transaction_id),
+    -- Usage per hour since the reorder engine's last run
+    INDEX idx_transactions_usage (transaction_type, transaction_date)
+);
+
+-- Short-lived holds on ingredient stock for carts still being built at a terminal. An active hold
+-- counts against availability for every other cart and order; placing the order removes it.
+CREATE TABLE IF NOT EXISTS `StockReservations` (
+    cart_id VARCHAR(36) NOT NULL,
+    ingredient_id INT NOT NULL,
+    quantity DECIMAL(10,2) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (cart_id, ingredient_id),
+    INDEX idx_reservations_ingredient (ingredient_id, expires_at),
+    FOREIGN KEY (ingredient_id) REFERENCES Ingredients(ingredient_id)
+);
+
+-- Per-day, per-dish sales totals for the sales and profit reports. Kept up to date in the same
+-- transaction as order creation, cancellation and deletion; excludes cancelled and deleted orders.
+CREATE TABLE IF NOT EXISTS `DailyDishSales` (
+    sales_date DATE NOT NULL,
+    dish_id INT NOT NULL,
+    order_lines INT NOT NULL DEFAULT 0,
+    quantity_sold INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(12,2) NOT NULL DEFAULT 0,
+    cost DECIMAL(12,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, dish_id),
+    FOREIGN KEY (dish_id) REFERENCES Dishes(dish_id)
 );
 
 -- Insert reference data
@@ -342,16 +380,16 @@ INSERT INTO Orders (customer_id, order_type, order_status, total_amount, payment
 (4, 'Dine-In', 'Served', 650.00, NULL, 'Pending'),          -- 4
 (5, 'Takeout', 'In Progress', 250.00, NULL, 'Pending');      -- 5
 
-INSERT INTO OrderItems (order_id, dish_id, quantity, price_at_time) VALUES
-(1, 1, 1, 250.00),  -- Pork Sinigang
-(1, 10, 2, 40.00),  -- Steamed Rice x2
-(2, 2, 1, 350.00),  -- Kare-kare
-(3, 3, 2, 220.00),  -- Chicken Adobo x2
-(3, 11, 1, 70.00),  -- Mashed Potatoes
-(4, 4, 1, 280.00),  -- Sisig
-(4, 8, 2, 85.00),   -- Mango Shake x2
-(5, 5, 1, 190.00),  -- Burger Steak
-(5, 10, 1, 40.00);  -- Steamed Rice
+INSERT INTO OrderItems (order_id, dish_id, quantity, price_at_time, cost_at_time) VALUES
+(1, 1, 1, 250.00, 250.00),  -- Pork Sinigang
+(1, 10, 2, 40.00, 40.00),   -- Steamed Rice x2
+(2, 2, 1, 350.00, 350.00),  -- Kare-kare
+(3, 3, 2, 220.00, 220.00),  -- Chicken Adobo x2
+(3, 11, 1, 70.00, 70.00),   -- Mashed Potatoes
+(4, 4, 1, 280.00, 280.00),  -- Sisig
+(4, 8, 2, 85.00, 85.00),    -- Mango Shake x2
+(5, 5, 1, 190.00, 190.00),  -- Burger Steak
+(5, 10, 1, 40.00, 40.00);   -- Steamed Rice
 
 INSERT INTO AssignedEmployeesToOrders (order_id, employee_id) VALUES
 (1, 1),  -- John Wick (Waiter) for order 1
@@ -364,3 +402,12 @@ INSERT INTO AssignedEmployeesToOrders (order_id, employee_id) VALUES
 (4, 5),  -- Jennie Kim (Chef) for order 4
 (5, 3),  -- Spongebob (Waiter) for order 5
 (5, 2);  -- Sabrina Carpenter (Chef) for order 5
+
+-- Backfill the sales rollup from the sample orders
+INSERT INTO DailyDishSales (sales_date, dish_id, order_lines, quantity_sold, revenue, cost)
+SELECT DATE(o.order_datetime), oi.dish_id, COUNT(*), SUM(oi.quantity),
+       SUM(oi.quantity * oi.price_at_time), SUM(oi.quantity * oi.cost_at_time)
+FROM Orders o
+JOIN OrderItems oi ON o.order_id = oi.order_id
+WHERE o.is_deleted = FALSE AND o.order_status <> 'Cancelled'
+GROUP BY DATE(o.order_datetime), oi.dish_id;
@@ -1,33 +1,52 @@
 package controller;
 
 import dao.OrderDAO;
+import dao.BatchExpirySweeper;
+import dao.LowStockWatch;
 import dao.CustomerDAO;
 import dao.EmployeeDAO;
 import dao.IngredientDAO;
 import dao.SupplierDAO;
 import dao.InventoryDAO;
 import dao.DishDAO;
+import dao.DishAvailability;
 import dao.IngredientBatchDAO;
+import dao.OrderIngestionPipeline;
+import dao.RecipeCache;
+import dao.ReorderEngine;
+import dao.SalesRollupDAO;
+import dao.StockLedger;
+import dao.StockReservationDAO;
 import model.Order;
 import model.Customer;
 import model.Employee;
 import model.Inventory;
 import model.OrderItem;
 import model.Supplier;
+import util.BackgroundExecutor;
 import util.DatabaseConnection;
+import util.ErrorChannel;
+import util.QueryMetrics;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import javax.swing.JOptionPane;
 import model.Ingredient;
+import model.DeliveryLine;
+import model.DeliveryLineResult;
 import model.IngredientBatch;
+import model.ReorderSuggestion;
 import model.Dish;
+import model.ReportPeriod;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 public class RestaurantController {
-    private final Connection connection;
+    // Portion count reported for dishes whose recipe uses no ingredients
+    public static final int UNLIMITED_PORTIONS = DishAvailability.UNLIMITED;
+
     private final CustomerDAO customerDAO;
     private final OrderDAO orderDAO;
     private final InventoryDAO inventoryDAO;
@@ -36,10 +55,15 @@ public class RestaurantController {
     private final IngredientBatchDAO ingredientBatchDAO;
     private SupplierDAO supplierDAO;
     private final DishDAO dishDAO;
+    private final SalesRollupDAO salesRollupDAO;
+    private final StockReservationDAO reservationDAO;
+    private final BatchExpirySweeper expirySweeper = new BatchExpirySweeper();
+    // Set while group commit is on; null means every order commits on its own
+    private volatile OrderIngestionPipeline orderPipeline;
 
     public RestaurantController() {
-        try {
-            this.connection = DatabaseConnection.getConnection();
+        // Open (and immediately return) one pooled connection so setup problems surface at startup
+        try (Connection conn = DatabaseConnection.getConnection()) {
             this.customerDAO = new CustomerDAO();
             this.orderDAO = new OrderDAO();
             this.inventoryDAO = new InventoryDAO();
@@ -48,37 +72,63 @@ public class RestaurantController {
             this.ingredientBatchDAO = new IngredientBatchDAO();
             this.supplierDAO = new SupplierDAO();
             this.dishDAO = new DishDAO();
+            this.salesRollupDAO = new SalesRollupDAO();
+            this.reservationDAO = new StockReservationDAO();
+            reservationDAO.deleteExpiredHolds();
+            // Finish any stock ledger flush a previous run did not get to, before stock is read below
+            StockLedger.getInstance().applyPending(conn);
+            // Warm the recipe cache so placing an order never has to read DishIngredients
+            RecipeCache.getInstance().loadAll(conn);
+            DishAvailability.getInstance().loadAll(conn);
+            LowStockWatch.getInstance().loadAll(conn);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize database connection", e);
         }
+        expirySweeper.start();
     }
 
     public Connection getConnection() throws SQLException {
         return DatabaseConnection.getConnection();
     }
 
+    // Per-operation query statistics (calls, errors, rows, latency percentiles) since the last reset
+    public List<QueryMetrics.OperationSnapshot> getQueryMetrics() {
+        return QueryMetrics.snapshot();
+    }
+
+    public void resetQueryMetrics() {
+        QueryMetrics.reset();
+    }
+
+    // Runs a controller call on the shared background executor so panels never block the Event Dispatch Thread
+    public <T> CompletableFuture<T> async(java.util.function.Supplier<T> call) {
+        return BackgroundExecutor.submit(call);
+    }
+
     // Category Management Methods
     public List<String> getAllCategories() {
         List<String> categories = new ArrayList<>();
         String query = "SELECT category_name FROM Categories WHERE is_deleted = FALSE ORDER BY category_name";
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 categories.add(rs.getString("category_name"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error fetching categories: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return categories;
     }
 
     private int getCategoryId(String categoryName) {
         String query = "SELECT category_id FROM Categories WHERE category_name = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, categoryName);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -87,10 +137,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to get category ID: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
         }
         return -1;
     }
@@ -109,7 +159,8 @@ public class RestaurantController {
             ORDER BY i.product_name
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query);
              ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 Inventory item = new Inventory(
@@ -126,10 +177,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to fetch inventory items: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
         }
         return items;
     }
@@ -148,7 +199,8 @@ public class RestaurantController {
             ORDER BY i.product_name
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, categoryName);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -167,10 +219,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to fetch inventory items by category: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
         }
         return items;
     }
@@ -183,7 +235,8 @@ public class RestaurantController {
             WHERE i.product_id = ?
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -201,10 +254,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to fetch inventory item: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
         }
         return null;
     }
@@ -218,10 +271,9 @@ public class RestaurantController {
                                   double sellPrice, int quantity, String recipe, int employeeId) {
         int categoryId = getCategoryId(categoryName);
         if (categoryId == -1) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Invalid category: " + categoryName,
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Error");
             return false;
         }
 
@@ -232,7 +284,8 @@ public class RestaurantController {
             ) VALUES (?, ?, ?, ?, ?, 'Available', ?, ?)
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, name);
             stmt.setInt(2, categoryId);
             stmt.setDouble(3, makePrice);
@@ -244,10 +297,10 @@ public class RestaurantController {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to add inventory item: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
             return false;
         }
     }
@@ -257,51 +310,45 @@ public class RestaurantController {
                                      int quantity, String recipe) {
         int categoryId = getCategoryId(categoryName);
         if (categoryId == -1) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Invalid category: " + categoryName,
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Error");
             return false;
         }
 
         // Validate input values
         if (name == null || name.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Product name cannot be empty.",
-                    "Invalid Input",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Invalid Input");
             return false;
         }
 
         if (makePrice <= 0) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Make price must be greater than 0.",
-                    "Invalid Input",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Invalid Input");
             return false;
         }
 
         if (sellPrice <= 0) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Sell price must be greater than 0.",
-                    "Invalid Input",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Invalid Input");
             return false;
         }
 
         if (sellPrice <= makePrice) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Sell price must be greater than make price.",
-                    "Invalid Input",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Invalid Input");
             return false;
         }
 
         if (quantity < 0) {
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.invalidInput(
                     "Quantity cannot be negative.",
-                    "Invalid Input",
-                    JOptionPane.ERROR_MESSAGE);
+                    "Invalid Input");
             return false;
         }
 
@@ -316,7 +363,8 @@ public class RestaurantController {
             WHERE product_id = ?
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, name);
             stmt.setInt(2, categoryId);
             stmt.setDouble(3, makePrice);
@@ -337,25 +385,26 @@ public class RestaurantController {
                 errorMessage += e.getMessage();
             }
             
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     errorMessage,
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
             return false;
         }
     }
 
     public boolean deleteInventoryItem(int id) {
         String query = "DELETE FROM InventoryItems WHERE product_id = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, id);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                     "Failed to delete inventory item: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
             return false;
         }
     }
@@ -365,6 +414,10 @@ public class RestaurantController {
         return orderDAO.getAllOrders();
     }
 
+    public List<Order> getOrdersPage(Timestamp afterDateTime, int afterOrderId, int pageSize) {
+        return orderDAO.getOrdersPage(afterDateTime, afterOrderId, pageSize);
+    }
+
     public Order getOrderById(int id) {
         return orderDAO.getOrderById(id);
     }
@@ -372,9 +425,59 @@ public class RestaurantController {
     public boolean createOrder(Order order, List<OrderItem> items, List<Integer> employeeIds) {
         order.setItems(items);
         order.setAssignedEmployees(employeeIds);
+        OrderIngestionPipeline pipeline = orderPipeline;
+        if (pipeline != null) {
+            return pipeline.createOrder(order) > 0;
+        }
         return orderDAO.createOrder(order) > 0;
     }
 
+    // Holds the stock a cart's items need, for StockReservationDAO.HOLD_SECONDS from now. Call again
+    // whenever the cart changes; false (with the reason on ErrorChannel) if the stock is not there.
+    public boolean holdCart(String cartId, List<OrderItem> items) {
+        return reservationDAO.holdCart(cartId, items);
+    }
+
+    public void releaseCart(String cartId) {
+        reservationDAO.releaseCart(cartId);
+    }
+
+    // Stock of these ingredients currently held for carts other than cartId
+    public Map<Integer, Double> getHeldByOtherCarts(List<Integer> ingredientIds, String cartId) {
+        return reservationDAO.getHeldByOthers(ingredientIds, cartId);
+    }
+
+    // Group commit: orders placed concurrently within maxDelayMillis of each other share one transaction.
+    // Worth it with several busy terminals; a single till only gains latency.
+    public synchronized void enableGroupCommit(long maxDelayMillis, int maxBatchSize) {
+        disableGroupCommit();
+        orderPipeline = new OrderIngestionPipeline(orderDAO, maxDelayMillis, maxBatchSize);
+    }
+
+    // Writes any orders still queued, then goes back to one transaction per order
+    public synchronized void disableGroupCommit() {
+        OrderIngestionPipeline pipeline = orderPipeline;
+        if (pipeline != null) {
+            orderPipeline = null;
+            pipeline.close();
+        }
+    }
+
+    // Orders take stock from in-memory counters instead of locking Ingredients rows; the table is
+    // brought up to date in the background. Enable before orders start coming in.
+    public void enableStockLedger() throws SQLException {
+        StockLedger.getInstance().enable();
+    }
+
+    public void disableStockLedger() {
+        StockLedger.getInstance().disable();
+    }
+
+    // Brings Ingredients.quantity_in_stock up to date with the stock ledger (no-op when it is off)
+    public void flushStockLedger() throws SQLException {
+        StockLedger.getInstance().flush();
+    }
+
     public List<Order> getOrdersByDateRange(String startDate, String endDate) {
         return orderDAO.getOrdersByDateRange(startDate, endDate);
     }
@@ -461,10 +564,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch suppliers: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         
         return suppliers;
@@ -492,10 +595,10 @@ public class RestaurantController {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete supplier: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -524,10 +627,13 @@ public class RestaurantController {
             try {
                 // First check if the order exists and is pending payment
                 String checkQuery = """
-                    SELECT payment_status, order_status 
+                    SELECT payment_status, order_status, is_deleted 
                     FROM Orders 
                     WHERE order_id = ?
+                    FOR UPDATE
                 """;
+                boolean wasCounted;
+                boolean deleted;
                 try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
                     checkStmt.setInt(1, orderId);
                     ResultSet rs = checkStmt.executeQuery();
@@ -538,6 +644,8 @@ public class RestaurantController {
                     if (!"Pending".equals(currentPaymentStatus)) {
                         throw new SQLException("Order is not pending payment");
                     }
+                    deleted = rs.getBoolean("is_deleted");
+                    wasCounted = SalesRollupDAO.isCounted(rs.getString("order_status"), deleted);
                 }
 
                 // Update order with payment information
@@ -559,45 +667,52 @@ public class RestaurantController {
                     }
                 }
 
+                // Paying completes the order, which brings a cancelled order back into the sales rollup.
+                // A deleted order stays out until restoreOrder adds it.
+                if (SalesRollupDAO.isCounted("Completed", deleted) && !wasCounted) {
+                    salesRollupDAO.applyOrder(conn, orderId, 1);
+                }
+
                 conn.commit();
                 return true;
             } catch (SQLException e) {
                 conn.rollback();
                 e.printStackTrace();
-                JOptionPane.showMessageDialog(null,
+                ErrorChannel.databaseError(
                     "Failed to process payment: " + e.getMessage(),
                     "Payment Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
                 return false;
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Database connection error: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
 
-    public void generateSalesReport(String datePattern, javax.swing.table.DefaultTableModel tableModel) {
+    public void generateSalesReport(ReportPeriod period, javax.swing.table.DefaultTableModel tableModel) {
+        // Reads the DailyDishSales rollup, so the cost grows with days x dishes rather than order lines
         String query = """
             SELECT
-                DATE(o.order_datetime) AS sales_date,
-                SUM(oi.quantity * oi.price_at_time) AS total_sales,
-                AVG(oi.quantity * oi.price_at_time) AS average_sales,
+                r.sales_date,
+                SUM(r.revenue) AS total_sales,
+                SUM(r.revenue) / SUM(r.order_lines) AS average_sales,
                 d.name AS top_product,
-                SUM(oi.quantity) AS product_sold
-            FROM Orders o
-            JOIN OrderItems oi ON o.order_id = oi.order_id
-            JOIN Dishes d ON oi.dish_id = d.dish_id
-            WHERE DATE(o.order_datetime) LIKE ? AND d.is_deleted = FALSE
-            GROUP BY sales_date, d.name
-            ORDER BY sales_date, product_sold DESC
-        """;
+                SUM(r.quantity_sold) AS product_sold
+            FROM DailyDishSales r
+            JOIN Dishes d ON r.dish_id = d.dish_id
+            WHERE %s AND r.order_lines > 0 AND d.is_deleted = FALSE
+            GROUP BY r.sales_date, d.name
+            ORDER BY r.sales_date, product_sold DESC
+        """.formatted(periodCondition(period, "r.sales_date"));
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setString(1, datePattern);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindPeriod(stmt, 1, period);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -612,14 +727,14 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error generating sales report: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
     }
 
-    public void generateCustomerOrdersReport(String datePattern, javax.swing.table.DefaultTableModel tableModel) {
+    public void generateCustomerOrdersReport(ReportPeriod period, javax.swing.table.DefaultTableModel tableModel) {
         String query = """
             SELECT
                 COUNT(DISTINCT o.order_id) AS total_orders,
@@ -629,14 +744,15 @@ public class RestaurantController {
             FROM Orders o
             JOIN OrderItems oi ON o.order_id = oi.order_id
             JOIN Dishes d ON oi.dish_id = d.dish_id
-            WHERE DATE(o.order_datetime) LIKE ? AND d.is_deleted = FALSE
+            WHERE %s AND d.is_deleted = FALSE
             GROUP BY d.name
             ORDER BY most_bought_quantity DESC
             LIMIT 1
-        """;
+        """.formatted(periodCondition(period, "o.order_datetime"));
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setString(1, datePattern);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindPeriod(stmt, 1, period);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -650,14 +766,14 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error generating customer orders report: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
     }
 
-    public void generateEmployeeShiftsReport(String datePattern, javax.swing.table.DefaultTableModel tableModel) {
+    public void generateEmployeeShiftsReport(ReportPeriod period, javax.swing.table.DefaultTableModel tableModel) {
         String query = """
             SELECT
                 e.first_name,
@@ -675,13 +791,14 @@ public class RestaurantController {
             JOIN AssignedEmployeesToOrders a ON e.employee_id = a.employee_id
             JOIN Orders o ON a.order_id = o.order_id
             JOIN TimeShifts ts ON e.time_shiftid = ts.time_shiftid
-            WHERE o.order_datetime LIKE ?
+            WHERE %s
             GROUP BY e.employee_id, e.first_name, e.last_name
             ORDER BY total_hours_worked DESC
-        """;
+        """.formatted(periodCondition(period, "o.order_datetime"));
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setString(1, datePattern);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindPeriod(stmt, 1, period);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -695,37 +812,38 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error generating employee shifts report: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
     }
 
-    public void generateProfitMarginReport(String datePattern, javax.swing.table.DefaultTableModel tableModel) {
+    public void generateProfitMarginReport(ReportPeriod period, javax.swing.table.DefaultTableModel tableModel) {
+        // One row per dish per day from the DailyDishSales rollup
         String query = """
             SELECT
-                o.order_datetime,
-                COUNT(*) AS total_orders_with_item,
-                SUM(oi.quantity) AS total_amount_ordered,
-                SUM(oi.quantity * oi.price_at_time) AS total_revenue,
-                SUM(oi.quantity * d.selling_price) AS total_cost,
-                SUM(oi.quantity * (oi.price_at_time - d.selling_price)) AS total_profit
-            FROM Dishes d
-            JOIN OrderItems oi ON d.dish_id = oi.dish_id
-            JOIN Orders o ON o.order_id = oi.order_id
-            WHERE DATE(o.order_datetime) LIKE ? AND d.is_deleted = FALSE
-            GROUP BY d.dish_id, o.order_id, o.order_datetime
+                r.sales_date,
+                SUM(r.order_lines) AS total_orders_with_item,
+                SUM(r.quantity_sold) AS total_amount_ordered,
+                SUM(r.revenue) AS total_revenue,
+                SUM(r.cost) AS total_cost,
+                SUM(r.revenue - r.cost) AS total_profit
+            FROM DailyDishSales r
+            JOIN Dishes d ON r.dish_id = d.dish_id
+            WHERE %s AND r.order_lines > 0 AND d.is_deleted = FALSE
+            GROUP BY r.sales_date, r.dish_id
             ORDER BY total_profit DESC
-        """;
+        """.formatted(periodCondition(period, "r.sales_date"));
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setString(1, datePattern);
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindPeriod(stmt, 1, period);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
                 Object[] row = {
-                    rs.getString("order_datetime"),
+                    rs.getString("sales_date"),
                     rs.getInt("total_orders_with_item"),
                     rs.getInt("total_amount_ordered"),
                     rs.getDouble("total_revenue"),
@@ -736,11 +854,46 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error generating profit margin report: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
+        }
+    }
+
+    // Condition on a datetime column for a report period. Bounds are plain comparisons so the index on
+    // Orders(order_datetime) turns the filter into a range scan; only month/day-without-year needs a function.
+    private String periodCondition(ReportPeriod period, String column) {
+        List<String> conditions = new ArrayList<>();
+        if (period.getFrom() != null) {
+            conditions.add(column + " >= ?");
+        }
+        if (period.getTo() != null) {
+            conditions.add(column + " < ?");
+        }
+        if (period.getMonth() != 0) {
+            conditions.add("MONTH(" + column + ") = ?");
+        }
+        if (period.getDay() != 0) {
+            conditions.add("DAYOFMONTH(" + column + ") = ?");
         }
+        return conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions);
+    }
+
+    private int bindPeriod(PreparedStatement stmt, int index, ReportPeriod period) throws SQLException {
+        if (period.getFrom() != null) {
+            stmt.setTimestamp(index++, period.getFrom());
+        }
+        if (period.getTo() != null) {
+            stmt.setTimestamp(index++, period.getTo());
+        }
+        if (period.getMonth() != 0) {
+            stmt.setInt(index++, period.getMonth());
+        }
+        if (period.getDay() != 0) {
+            stmt.setInt(index++, period.getDay());
+        }
+        return index;
     }
 
     public List<Inventory> getLowStockItems(int maxQuantity) {
@@ -753,7 +906,8 @@ public class RestaurantController {
             ORDER BY i.quantity ASC
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, maxQuantity);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -769,10 +923,10 @@ public class RestaurantController {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch low stock items: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return items;
     }
@@ -797,10 +951,23 @@ public class RestaurantController {
         return inventoryDAO.updateStock(productId, newQuantity);
     }
 
+    public boolean cancelOrder(int orderId) {
+        return orderDAO.updateOrderStatus(orderId, "Cancelled");
+    }
+
+    public boolean cancelUnpaidOrder(int orderId) {
+        return orderDAO.cancelUnpaidOrder(orderId);
+    }
+
     public boolean deleteOrder(int orderId) {
         return orderDAO.deleteOrder(orderId);
     }
 
+    // Recomputes DailyDishSales from all orders; use after importing data or if the rollup drifts
+    public boolean rebuildSalesRollup() {
+        return salesRollupDAO.rebuild();
+    }
+
     // Methods for handling deleted records
     public List<Customer> getDeletedCustomers() {
         return customerDAO.getDeletedCustomers();
@@ -851,20 +1018,42 @@ public class RestaurantController {
         return ingredientDAO.getLowStockIngredients();
     }
 
+    // Reorder point and suggested purchase for every ingredient, from recent usage and supplier lead times
+    public List<ReorderSuggestion> getReorderSuggestions() {
+        return ReorderEngine.getInstance().getSuggestions();
+    }
+
     public Ingredient getIngredientById(int ingredientId) {
         return ingredientDAO.getIngredientById(ingredientId);
     }
 
+    // For screens that show a whole recipe or order; two queries however many ingredients
+    public Map<Integer, Ingredient> getIngredientsByIds(Collection<Integer> ingredientIds) {
+        return ingredientDAO.getIngredientsByIds(ingredientIds);
+    }
+
     public boolean addIngredient(Ingredient ingredient) {
-        return ingredientDAO.addIngredient(ingredient);
+        boolean added = ingredientDAO.addIngredient(ingredient);
+        if (added) {
+            refreshStock(List.of(ingredient.getIngredientId()));
+        }
+        return added;
     }
 
     public boolean updateIngredient(Ingredient ingredient) {
-        return ingredientDAO.updateIngredient(ingredient);
+        boolean updated = ingredientDAO.updateIngredient(ingredient);
+        if (updated) {
+            refreshStock(List.of(ingredient.getIngredientId()));
+        }
+        return updated;
     }
 
     public boolean deleteIngredient(int ingredientId) {
-        return ingredientDAO.deleteIngredient(ingredientId);
+        boolean deleted = ingredientDAO.deleteIngredient(ingredientId);
+        if (deleted) {
+            refreshStock(List.of(ingredientId));
+        }
+        return deleted;
     }
 
     public List<Ingredient> getDeletedIngredients() {
@@ -872,7 +1061,11 @@ public class RestaurantController {
     }
 
     public boolean restoreIngredient(int ingredientId) {
-        return ingredientDAO.restoreIngredient(ingredientId);
+        boolean restored = ingredientDAO.restoreIngredient(ingredientId);
+        if (restored) {
+            refreshStock(List.of(ingredientId));
+        }
+        return restored;
     }
 
     public List<IngredientBatch> getAllIngredientBatches() {
@@ -892,7 +1085,26 @@ public class RestaurantController {
     }
 
     public boolean addIngredientBatch(IngredientBatch batch) {
-        return ingredientBatchDAO.addBatch(batch);
+        boolean added = ingredientBatchDAO.addBatch(batch);
+        if (added) {
+            if (batch.getExpiryDate() != null) {
+                expirySweeper.batchAdded(new java.sql.Date(batch.getExpiryDate().getTime()).toLocalDate());
+            }
+            refreshStock(List.of(batch.getIngredientId()));
+        }
+        return added;
+    }
+
+    // Receives a supplier delivery in one transaction, creating a batch per line; all lines or none
+    public List<DeliveryLineResult> receiveDelivery(int supplierId, int employeeId, List<DeliveryLine> lines,
+                                                    String notes) {
+        List<DeliveryLineResult> results = ingredientDAO.receiveDelivery(supplierId, employeeId, lines, notes);
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isReceived() && lines.get(i).getExpiryDate() != null) {
+                expirySweeper.batchAdded(new java.sql.Date(lines.get(i).getExpiryDate().getTime()).toLocalDate());
+            }
+        }
+        return results;
     }
 
     public boolean updateIngredientBatch(IngredientBatch batch) {
@@ -923,6 +1135,7 @@ public class RestaurantController {
     }
 
     public boolean addDish(Dish dish, Map<Integer, Double> ingredients) {
+        int addedDishId;
         try (Connection conn = getConnection()) {
             conn.setAutoCommit(false);
             try {
@@ -955,35 +1168,69 @@ public class RestaurantController {
                 }
 
                 conn.commit();
-                return true;
+                addedDishId = dishId;
             } catch (SQLException e) {
                 conn.rollback();
                 e.printStackTrace();
-                JOptionPane.showMessageDialog(null,
+                ErrorChannel.databaseError(
                     "Failed to add dish: " + e.getMessage(),
                     "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
+                    e);
                 return false;
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Database connection error: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
+        // Reading the new recipe takes a connection of its own
+        RecipeCache.getInstance().invalidate(addedDishId);
+        DishAvailability.getInstance().dishChanged(addedDishId);
+        return true;
     }
 
     public boolean updateDish(Dish dish) {
-        return dishDAO.updateDish(dish);
+        boolean updated = dishDAO.updateDish(dish);
+        if (updated) {
+            RecipeCache.getInstance().invalidate(dish.getDishId());
+            DishAvailability.getInstance().dishChanged(dish.getDishId());
+        }
+        return updated;
     }
 
     public boolean deleteDish(int dishId) {
-        return dishDAO.deleteDish(dishId);
+        boolean deleted = dishDAO.deleteDish(dishId);
+        if (deleted) {
+            RecipeCache.getInstance().invalidate(dishId);
+            DishAvailability.getInstance().dishRemoved(dishId);
+        }
+        return deleted;
     }
 
     public Map<Integer, Double> getDishIngredients(int dishId) {
         return dishDAO.getDishIngredients(dishId);
     }
+
+    public int getPortionsAvailable(int dishId) {
+        return DishAvailability.getInstance().getPortionsAvailable(dishId);
+    }
+
+    // Stock of these ingredients was set outright; re-read it into the stock ledger, portion counts and
+    // low-stock set
+    private void refreshStock(List<Integer> ingredientIds) {
+        StockLedger.getInstance().refreshIngredients(ingredientIds);
+        DishAvailability.getInstance().refreshIngredients(ingredientIds);
+        LowStockWatch.getInstance().refreshIngredients(ingredientIds);
+    }
+
+    public void addPortionsListener(DishAvailability.Listener listener) {
+        DishAvailability.getInstance().addListener(listener);
+    }
+
+    public void addLowStockListener(LowStockWatch.Listener listener) {
+        LowStockWatch.getInstance().addListener(listener);
+    }
 } 
@@ -0,0 +1,313 @@
+package dao;
+
+import util.DatabaseConnection;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Moves open batches to 'Expired' once their expiry date has passed (a batch is good through its expiry
+// date), writing a 'Waste' transaction per batch and taking the wasted stock off Ingredients, all in one
+// transaction. Stock never goes below zero, and the Waste rows add up to exactly what was taken off.
+// The distinct expiry dates of open batches are kept in a min-heap, so the sweeper sleeps until the next
+// one instead of polling; it also re-reads them at least once a day to pick up batches added by other
+// terminals.
+public class BatchExpirySweeper {
+    private static final long MAX_SLEEP_HOURS = 24;
+    private static final long RETRY_MINUTES = 5;
+    // Waste rows are attributed to the admin account, like order usage
+    private static final int SYSTEM_EMPLOYEE_ID = 1;
+
+    private final PriorityQueue<LocalDate> expiryDates = new PriorityQueue<>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextWake;
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "batch-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Catch up on anything that expired while the application was not running
+        nextWake = scheduler.schedule(this::wake, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            nextWake = null;
+        }
+    }
+
+    // A batch with this expiry date was just added; wakes earlier if it is the soonest
+    public synchronized void batchAdded(LocalDate expiryDate) {
+        if (expiryDate == null || expiryDates.contains(expiryDate)) {
+            return;
+        }
+        expiryDates.add(expiryDate);
+        if (scheduler != null && expiryDates.peek().equals(expiryDate)) {
+            scheduleNext();
+        }
+    }
+
+    private void wake() {
+        try {
+            sweep();
+            List<LocalDate> open = loadOpenExpiryDates();
+            synchronized (this) {
+                expiryDates.clear();
+                expiryDates.addAll(open);
+                if (scheduler != null) {
+                    scheduleNext();
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                if (scheduler != null) {
+                    nextWake = scheduler.schedule(this::wake, RETRY_MINUTES, TimeUnit.MINUTES);
+                }
+            }
+        }
+    }
+
+    // Must hold the monitor. A date already past (e.g. a batch entered after it expired) wakes right away.
+    private void scheduleNext() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime wakeAt = now.plusHours(MAX_SLEEP_HOURS);
+        if (!expiryDates.isEmpty()) {
+            // Expired from the start of the day after its expiry date
+            LocalDateTime expiresAt = expiryDates.peek().plusDays(1).atStartOfDay();
+            if (expiresAt.isBefore(wakeAt)) {
+                wakeAt = expiresAt;
+            }
+        }
+        if (nextWake != null) {
+            nextWake.cancel(false);
+        }
+        long delay = Math.max(Duration.between(now, wakeAt).toMillis(), 0);
+        nextWake = scheduler.schedule(this::wake, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private List<LocalDate> loadOpenExpiryDates() throws SQLException {
+        List<LocalDate> dates = new ArrayList<>();
+        String query = """
+            SELECT DISTINCT expiry_date
+            FROM IngredientBatches
+            WHERE status IN ('Available', 'Low') AND expiry_date >= CURRENT_DATE
+        """;
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                dates.add(rs.getDate("expiry_date").toLocalDate());
+            }
+        }
+        return dates;
+    }
+
+    // Expires every open batch past its date; returns how many batches were expired
+    public int sweep() throws SQLException {
+        Connection conn = DatabaseConnection.getConnection();
+        boolean originalAutoCommit = true;
+        Map<Integer, Double> changes;
+        List<Integer> expiredIds;
+        try {
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            // Which ingredients are affected; a cheap look by (status, expiry_date) before locking anything
+            List<Integer> ingredientIds = new ArrayList<>();
+            String findQuery = """
+                SELECT DISTINCT ingredient_id
+                FROM IngredientBatches
+                WHERE status IN ('Available', 'Low') AND expiry_date < CURRENT_DATE
+                ORDER BY ingredient_id
+            """;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(findQuery)) {
+                while (rs.next()) {
+                    ingredientIds.add(rs.getInt("ingredient_id"));
+                }
+            }
+            if (ingredientIds.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+            String placeholders = String.join(", ", Collections.nCopies(ingredientIds.size(), "?"));
+
+            // Ingredients rows first, then batches: the same order order placement locks them in
+            String lockQuery = """
+                SELECT ingredient_id, quantity_in_stock
+                FROM Ingredients
+                WHERE ingredient_id IN (%s)
+                ORDER BY ingredient_id
+                FOR UPDATE
+            """.formatted(placeholders);
+            Map<Integer, Double> stock = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                bindIds(stmt, 1, ingredientIds);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        stock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                    }
+                }
+            }
+
+            String batchQuery = """
+                SELECT batch_id, ingredient_id, remaining_quantity
+                FROM IngredientBatches
+                WHERE ingredient_id IN (%s) AND status IN ('Available', 'Low') AND expiry_date < CURRENT_DATE
+                ORDER BY batch_id
+                FOR UPDATE
+            """.formatted(placeholders);
+            List<Integer> batchIds = new ArrayList<>();
+            List<Integer> batchIngredients = new ArrayList<>();
+            List<Double> wasted = new ArrayList<>();
+            Map<Integer, Double> wastedByIngredient = new TreeMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(batchQuery)) {
+                bindIds(stmt, 1, ingredientIds);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        double remaining = Math.max(rs.getDouble("remaining_quantity"), 0);
+                        batchIds.add(rs.getInt("batch_id"));
+                        batchIngredients.add(rs.getInt("ingredient_id"));
+                        wasted.add(remaining);
+                        wastedByIngredient.merge(rs.getInt("ingredient_id"), remaining, Double::sum);
+                    }
+                }
+            }
+            if (batchIds.isEmpty()) {
+                conn.commit();
+                return 0;
+            }
+
+            // Aggregate stock can be lower than its batches (stock recorded before batches were); never below
+            // zero. With the stock ledger on, its counter (which also covers unflushed and in-flight orders)
+            // is the floor as well, and what it gives up is put back unless this transaction commits.
+            Map<Integer, Double> wanted = new TreeMap<>();
+            for (Map.Entry<Integer, Double> entry : wastedByIngredient.entrySet()) {
+                double current = stock.getOrDefault(entry.getKey(), 0.0);
+                double removed = Math.round(Math.min(entry.getValue(), Math.max(current, 0)) * 100) / 100.0;
+                if (removed > 0) {
+                    wanted.put(entry.getKey(), removed);
+                }
+            }
+            changes = StockLedger.getInstance().withWasteTaken(wanted, taken -> {
+                Map<Integer, Double> removals = new TreeMap<>();
+                taken.forEach((ingredientId, removed) -> removals.put(ingredientId, -removed));
+
+                String expireQuery = """
+                    UPDATE IngredientBatches
+                    SET status = 'Expired'
+                    WHERE batch_id IN (%s)
+                """.formatted(String.join(", ", Collections.nCopies(batchIds.size(), "?")));
+                try (PreparedStatement stmt = conn.prepareStatement(expireQuery)) {
+                    bindIds(stmt, 1, batchIds);
+                    stmt.executeUpdate();
+                }
+
+                // Waste rows add up to exactly what comes off Ingredients: each ingredient's removal is charged
+                // to its batches in batch order, and a batch left with nothing to charge gets no row
+                Map<Integer, Double> unallocated = new HashMap<>(taken);
+                List<Integer> wasteIndexes = new ArrayList<>();
+                List<Double> charged = new ArrayList<>();
+                for (int i = 0; i < batchIds.size(); i++) {
+                    double left = unallocated.getOrDefault(batchIngredients.get(i), 0.0);
+                    double amount = Math.round(Math.min(wasted.get(i), left) * 100) / 100.0;
+                    if (amount > 0) {
+                        wasteIndexes.add(i);
+                        charged.add(amount);
+                        unallocated.put(batchIngredients.get(i), Math.round((left - amount) * 100) / 100.0);
+                    }
+                }
+                if (!wasteIndexes.isEmpty()) {
+                    String wasteQuery = """
+                        INSERT INTO IngredientTransactions
+                        (ingredient_id, transaction_type, quantity_change, employee_id, notes)
+                        VALUES %s
+                    """.formatted(String.join(", ",
+                        Collections.nCopies(wasteIndexes.size(), "(?, 'Waste', ?, ?, ?)")));
+                    try (PreparedStatement stmt = conn.prepareStatement(wasteQuery)) {
+                        int index = 1;
+                        for (int row = 0; row < wasteIndexes.size(); row++) {
+                            int i = wasteIndexes.get(row);
+                            stmt.setInt(index++, batchIngredients.get(i));
+                            stmt.setDouble(index++, -charged.get(row));
+                            stmt.setInt(index++, SYSTEM_EMPLOYEE_ID);
+                            stmt.setString(index++, "Batch #" + batchIds.get(i) + " expired");
+                        }
+                        stmt.executeUpdate();
+                    }
+                }
+
+                if (!removals.isEmpty()) {
+                    StringBuilder amountCase = new StringBuilder("CASE ingredient_id");
+                    for (int i = 0; i < removals.size(); i++) {
+                        amountCase.append(" WHEN ? THEN ?");
+                    }
+                    amountCase.append(" END");
+                    List<Integer> changedIds = new ArrayList<>(removals.keySet());
+                    String updateQuery = """
+                        UPDATE Ingredients
+                        SET quantity_in_stock = quantity_in_stock + (%s)
+                        WHERE ingredient_id IN (%s)
+                    """.formatted(amountCase, String.join(", ", Collections.nCopies(changedIds.size(), "?")));
+                    try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+                        int index = 1;
+                        for (Map.Entry<Integer, Double> entry : removals.entrySet()) {
+                            stmt.setInt(index++, entry.getKey());
+                            stmt.setDouble(index++, entry.getValue());
+                        }
+                        bindIds(stmt, index, changedIds);
+                        stmt.executeUpdate();
+                    }
+                }
+
+                conn.commit();
+                return removals;
+            });
+            expiredIds = batchIds;
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(originalAutoCommit);
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        // The listeners may lease connections of their own, so only once this one is back in the pool
+        DishAvailability.getInstance().stockAdjusted(changes);
+        LowStockWatch.getInstance().stockAdjusted(changes);
+        ExpiringBatchIndex.getInstance().batchesClosed(expiredIds);
+        return expiredIds.size();
+    }
+
+    private static void bindIds(PreparedStatement stmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            stmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+}
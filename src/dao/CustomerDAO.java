@@ -3,7 +3,7 @@ package dao;
 import model.Customer;
 import model.Order;
 import util.DatabaseConnection;
-import javax.swing.JOptionPane;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,10 +34,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch customer: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return null;
     }
@@ -63,10 +63,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch customers: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return customers;
     }
@@ -94,10 +94,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to add customer: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return -1;
     }
@@ -118,10 +118,10 @@ public class CustomerDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to update customer: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -136,10 +136,9 @@ public class CustomerDAO {
             checkStmt.setInt(1, customerId);
             try (ResultSet rs = checkStmt.executeQuery()) {
                 if (rs.next() && rs.getInt(1) > 0) {
-                    JOptionPane.showMessageDialog(null,
+                    ErrorChannel.rejected(
                         "Cannot delete customer because they have existing orders.",
-                        "Delete Failed",
-                        JOptionPane.WARNING_MESSAGE);
+                        "Delete Failed");
                     return false;
                 }
             }
@@ -152,10 +151,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete customer: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -189,10 +188,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to search customers: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return customers;
     }
@@ -200,7 +199,8 @@ public class CustomerDAO {
     public List<Order> getCustomerOrders(int customerId) {
         List<Order> orders = new ArrayList<>();
         String query = "SELECT * FROM Orders WHERE customer_id = ? AND is_deleted = FALSE ORDER BY order_datetime DESC";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, customerId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -244,10 +244,10 @@ public class CustomerDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch deleted customers: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return customers;
     }
@@ -262,10 +262,10 @@ public class CustomerDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to restore customer: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
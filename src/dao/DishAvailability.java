@@ -0,0 +1,406 @@
+package dao;
+
+import util.DatabaseConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Tracks how many portions of every dish the current ingredient stock can make (the minimum over its recipe).
+// Stock changes only recompute the dishes that use the changed ingredients. When a dish runs out or becomes
+// makeable again its Dishes.is_available flag is switched to match.
+public class DishAvailability {
+    // Portions reported for dishes whose recipe has no ingredients
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final DishAvailability INSTANCE = new DishAvailability();
+
+    // Stock less any usage StockLedger has not flushed to Ingredients yet
+    static final String STOCK_COLUMN = """
+        i.quantity_in_stock + COALESCE((
+            SELECT SUM(t.quantity_change)
+            FROM IngredientTransactions t
+            WHERE t.stock_pending = TRUE AND t.ingredient_id = i.ingredient_id), 0)""";
+
+    public interface Listener {
+        // Called with the new portion count of every dish that changed
+        void portionsChanged(Map<Integer, Integer> portionsByDish);
+    }
+
+    private final Map<Integer, Double> stock = new HashMap<>();
+    private final Map<Integer, Set<Integer>> dishesByIngredient = new HashMap<>();
+    private final Map<Integer, int[]> ingredientsByDish = new HashMap<>();
+    private final Map<Integer, Integer> portions = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private boolean loaded = false;
+    private boolean autoToggleAvailability = true;
+    // Serializes is_available writes; see publish
+    private final Object flagWriter = new Object();
+
+    private DishAvailability() {
+    }
+
+    public static DishAvailability getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized void setAutoToggleAvailability(boolean autoToggleAvailability) {
+        this.autoToggleAvailability = autoToggleAvailability;
+    }
+
+    public int getPortionsAvailable(int dishId) {
+        if (!isLoaded()) {
+            try {
+                loadAll();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }
+        return portions.getOrDefault(dishId, 0);
+    }
+
+    public Map<Integer, Integer> getAllPortionsAvailable() {
+        return Collections.unmodifiableMap(portions);
+    }
+
+    public void loadAll() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            loadAll(conn);
+        }
+    }
+
+    public void loadAll(Connection conn) throws SQLException {
+        Map<Integer, Double> loadedStock = new HashMap<>();
+        String stockQuery = """
+            SELECT i.ingredient_id, %s AS quantity_in_stock
+            FROM Ingredients i
+            WHERE i.is_deleted = FALSE
+        """.formatted(STOCK_COLUMN);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(stockQuery)) {
+            while (rs.next()) {
+                loadedStock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+            }
+        }
+        List<Integer> dishIds = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT dish_id FROM Dishes WHERE is_deleted = FALSE")) {
+            while (rs.next()) {
+                dishIds.add(rs.getInt("dish_id"));
+            }
+        }
+
+        RecipeCache recipeCache = RecipeCache.getInstance();
+        Map<Integer, RecipeCache.Recipe> recipes = new HashMap<>();
+        for (Integer dishId : dishIds) {
+            recipes.put(dishId, recipeCache.getRecipe(conn, dishId));
+        }
+
+        Map<Integer, Integer> changed;
+        synchronized (this) {
+            stock.clear();
+            stock.putAll(loadedStock);
+            dishesByIngredient.clear();
+            ingredientsByDish.clear();
+            for (Map.Entry<Integer, RecipeCache.Recipe> entry : recipes.entrySet()) {
+                indexDish(entry.getKey(), entry.getValue());
+            }
+            Map<Integer, Integer> previous = new HashMap<>(portions);
+            portions.keySet().retainAll(recipes.keySet());
+            changed = new HashMap<>();
+            for (Integer dishId : recipes.keySet()) {
+                int count = computePortions(recipes.get(dishId));
+                portions.put(dishId, count);
+                if (!Integer.valueOf(count).equals(previous.get(dishId))) {
+                    changed.put(dishId, count);
+                }
+            }
+            loaded = true;
+        }
+        notifyListeners(changed);
+    }
+
+    // New absolute stock levels, e.g. the rows an order just decremented
+    public void stockChanged(Map<Integer, Double> newStock) {
+        if (newStock.isEmpty() || !isLoaded()) {
+            return;
+        }
+        Map<Integer, RecipeCache.Recipe> recipes = recipesUsing(newStock.keySet());
+        Map<Integer, Integer> before;
+        Map<Integer, Integer> changed;
+        synchronized (this) {
+            stock.putAll(newStock);
+            before = new HashMap<>();
+            changed = recomputeDishesUsing(newStock.keySet(), recipes, before);
+        }
+        publish(before, changed);
+    }
+
+    // Relative change for a single ingredient, e.g. a restock or adjustment that was just committed
+    public void stockAdjusted(int ingredientId, double quantityChange) {
+        stockAdjusted(Map.of(ingredientId, quantityChange));
+    }
+
+    // Relative changes that were just committed. Unlike absolute levels these can be applied in any order,
+    // which is what orders placed through StockLedger need.
+    public void stockAdjusted(Map<Integer, Double> quantityChanges) {
+        if (quantityChanges.isEmpty() || !isLoaded()) {
+            return;
+        }
+        Map<Integer, RecipeCache.Recipe> recipes = recipesUsing(quantityChanges.keySet());
+        Map<Integer, Integer> before;
+        Map<Integer, Integer> changed;
+        synchronized (this) {
+            for (Map.Entry<Integer, Double> entry : quantityChanges.entrySet()) {
+                double current = stock.getOrDefault(entry.getKey(), 0.0);
+                stock.put(entry.getKey(), Math.round((current + entry.getValue()) * 100) / 100.0);
+            }
+            before = new HashMap<>();
+            changed = recomputeDishesUsing(quantityChanges.keySet(), recipes, before);
+        }
+        publish(before, changed);
+    }
+
+    // Re-read the stock of the given ingredients, for changes made outside the stock-moving DAO paths
+    public void refreshIngredients(Collection<Integer> ingredientIds) {
+        if (ingredientIds.isEmpty() || !isLoaded()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(new HashSet<>(ingredientIds));
+        String query = """
+            SELECT i.ingredient_id, %s AS quantity_in_stock, i.is_deleted
+            FROM Ingredients i
+            WHERE i.ingredient_id IN (%s)
+        """.formatted(STOCK_COLUMN, String.join(", ", Collections.nCopies(ids.size(), "?")));
+
+        Map<Integer, Double> fresh = new HashMap<>();
+        for (Integer ingredientId : ids) {
+            fresh.put(ingredientId, 0.0);
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // A deleted ingredient counts as out of stock
+                    fresh.put(rs.getInt("ingredient_id"),
+                        rs.getBoolean("is_deleted") ? 0.0 : rs.getDouble("quantity_in_stock"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        stockChanged(fresh);
+    }
+
+    // Re-index a dish after its recipe or row changed; RecipeCache must already be invalidated
+    public void dishChanged(int dishId) {
+        if (!isLoaded()) {
+            return;
+        }
+        RecipeCache.Recipe recipe;
+        try {
+            recipe = RecipeCache.getInstance().getRecipe(dishId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        Map<Integer, Integer> changed = new HashMap<>();
+        synchronized (this) {
+            unindexDish(dishId);
+            indexDish(dishId, recipe);
+            int count = computePortions(recipe);
+            Integer previous = portions.put(dishId, count);
+            if (!Integer.valueOf(count).equals(previous)) {
+                changed.put(dishId, count);
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    public void dishRemoved(int dishId) {
+        synchronized (this) {
+            unindexDish(dishId);
+            portions.remove(dishId);
+        }
+    }
+
+    // Recipes of the dishes that use these ingredients, fetched before taking the monitor because RecipeCache
+    // may have to go to the database. A dish whose recipe could not be read keeps its last known count.
+    private Map<Integer, RecipeCache.Recipe> recipesUsing(Collection<Integer> ingredientIds) {
+        Set<Integer> dishIds;
+        synchronized (this) {
+            dishIds = dishesUsing(ingredientIds);
+        }
+        Map<Integer, RecipeCache.Recipe> recipes = new HashMap<>();
+        for (Integer dishId : dishIds) {
+            try {
+                recipes.put(dishId, RecipeCache.getInstance().getRecipe(dishId));
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return recipes;
+    }
+
+    private Set<Integer> dishesUsing(Collection<Integer> ingredientIds) {
+        Set<Integer> dishIds = new HashSet<>();
+        for (Integer ingredientId : ingredientIds) {
+            dishIds.addAll(dishesByIngredient.getOrDefault(ingredientId, Set.of()));
+        }
+        return dishIds;
+    }
+
+    private Map<Integer, Integer> recomputeDishesUsing(Collection<Integer> ingredientIds,
+                                                       Map<Integer, RecipeCache.Recipe> recipes,
+                                                       Map<Integer, Integer> before) {
+        Map<Integer, Integer> changed = new HashMap<>();
+        for (Integer dishId : dishesUsing(ingredientIds)) {
+            RecipeCache.Recipe recipe = recipes.get(dishId);
+            if (recipe == null) {
+                // Indexed after the recipes were fetched, or its recipe could not be read: keep the last
+                // known count rather than flapping the dish to unavailable
+                continue;
+            }
+            int count = computePortions(recipe);
+            Integer previous = portions.put(dishId, count);
+            if (previous == null || previous != count) {
+                before.put(dishId, previous == null ? 0 : previous);
+                changed.put(dishId, count);
+            }
+        }
+        return changed;
+    }
+
+    private int computePortions(RecipeCache.Recipe recipe) {
+        int count = UNLIMITED;
+        for (int i = 0; i < recipe.size(); i++) {
+            double needed = recipe.getQuantity(i);
+            if (needed <= 0) {
+                continue;
+            }
+            double available = stock.getOrDefault(recipe.getIngredientId(i), 0.0);
+            // Stock and recipe amounts have two decimals; the epsilon keeps 0.3 / 0.1 from flooring to 2
+            long makeable = (long) Math.floor(available / needed + 1e-9);
+            count = (int) Math.max(0, Math.min(count, makeable));
+        }
+        return count;
+    }
+
+    private void indexDish(int dishId, RecipeCache.Recipe recipe) {
+        int[] ingredientIds = new int[recipe.size()];
+        for (int i = 0; i < recipe.size(); i++) {
+            ingredientIds[i] = recipe.getIngredientId(i);
+            dishesByIngredient.computeIfAbsent(ingredientIds[i], id -> new HashSet<>()).add(dishId);
+        }
+        ingredientsByDish.put(dishId, ingredientIds);
+    }
+
+    private void unindexDish(int dishId) {
+        int[] ingredientIds = ingredientsByDish.remove(dishId);
+        if (ingredientIds == null) {
+            return;
+        }
+        for (int ingredientId : ingredientIds) {
+            Set<Integer> dishes = dishesByIngredient.get(ingredientId);
+            if (dishes != null) {
+                dishes.remove(dishId);
+                if (dishes.isEmpty()) {
+                    dishesByIngredient.remove(ingredientId);
+                }
+            }
+        }
+    }
+
+    private void publish(Map<Integer, Integer> before, Map<Integer, Integer> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (isAutoToggleAvailability()) {
+            List<Integer> crossed = new ArrayList<>();
+            for (Map.Entry<Integer, Integer> entry : changed.entrySet()) {
+                if ((before.getOrDefault(entry.getKey(), 0) > 0) != (entry.getValue() > 0)) {
+                    crossed.add(entry.getKey());
+                }
+            }
+            if (!crossed.isEmpty()) {
+                // One writer at a time, and each writes the dishes' current state rather than the one it
+                // computed: a publisher that lost the race then writes the newer value, never a stale one
+                synchronized (flagWriter) {
+                    List<Integer> nowAvailable = new ArrayList<>();
+                    List<Integer> nowUnavailable = new ArrayList<>();
+                    for (Integer dishId : crossed) {
+                        Integer current = portions.get(dishId);
+                        if (current == null) {
+                            continue;
+                        }
+                        (current > 0 ? nowAvailable : nowUnavailable).add(dishId);
+                    }
+                    updateAvailabilityFlags(nowAvailable, true);
+                    updateAvailabilityFlags(nowUnavailable, false);
+                }
+            }
+        }
+        notifyListeners(changed);
+    }
+
+    // Only dishes that crossed zero are written, so a dish switched off by hand stays off until its stock moves
+    private void updateAvailabilityFlags(List<Integer> dishIds, boolean available) {
+        if (dishIds.isEmpty()) {
+            return;
+        }
+        String query = """
+            UPDATE Dishes
+            SET is_available = ?
+            WHERE dish_id IN (%s) AND is_deleted = FALSE
+        """.formatted(String.join(", ", Collections.nCopies(dishIds.size(), "?")));
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setBoolean(1, available);
+            for (int i = 0; i < dishIds.size(); i++) {
+                stmt.setInt(i + 2, dishIds.get(i));
+            }
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void notifyListeners(Map<Integer, Integer> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> snapshot = Collections.unmodifiableMap(new HashMap<>(changed));
+        for (Listener listener : listeners) {
+            listener.portionsChanged(snapshot);
+        }
+    }
+
+    private synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    private synchronized boolean isAutoToggleAvailability() {
+        return autoToggleAvailability;
+    }
+}
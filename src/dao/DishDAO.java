@@ -2,10 +2,10 @@ package dao;
 
 import model.Dish;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -33,10 +33,10 @@ public class DishDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch dishes: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return dishes;
     }
@@ -51,7 +51,8 @@ public class DishDAO {
             ORDER BY d.name
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, categoryName);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -60,10 +61,10 @@ public class DishDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch dishes by category: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return dishes;
     }
@@ -76,7 +77,8 @@ public class DishDAO {
             WHERE d.dish_id = ? AND d.is_deleted = FALSE
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, dishId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -85,25 +87,34 @@ public class DishDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch dish: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return null;
     }
 
     public boolean addDish(Dish dish) {
+        int dishId;
         try (Connection conn = getConnection()) {
-            return addDishAndGetId(dish, conn) != -1;
+            dishId = addDishAndGetId(dish, conn);
+            if (dishId == -1) {
+                return false;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to add dish: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
+        // Restoring a deleted dish clears its old ingredient rows. Done after the connection is closed,
+        // since reading the recipe again takes one of its own.
+        RecipeCache.getInstance().invalidate(dishId);
+        DishAvailability.getInstance().dishChanged(dishId);
+        return true;
     }
 
     public int addDishAndGetId(Dish dish, Connection conn) throws SQLException {
@@ -188,7 +199,8 @@ public class DishDAO {
             WHERE dish_id = ?
         """;
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, dish.getName());
             stmt.setInt(2, getCategoryId(dish.getCategoryName()));
             stmt.setDouble(3, dish.getSellingPrice());
@@ -199,10 +211,10 @@ public class DishDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to update dish: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return false;
     }
@@ -210,15 +222,16 @@ public class DishDAO {
     public boolean deleteDish(int dishId) {
         String query = "UPDATE Dishes SET is_deleted = TRUE WHERE dish_id = ?";
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, dishId);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete dish: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return false;
     }
@@ -236,7 +249,8 @@ public class DishDAO {
 
     private int getCategoryId(String categoryName) throws SQLException {
         String query = "SELECT category_id FROM Categories WHERE category_name = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setString(1, categoryName);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -248,30 +262,15 @@ public class DishDAO {
     }
 
     public Map<Integer, Double> getDishIngredients(int dishId) {
-        Map<Integer, Double> ingredients = new HashMap<>();
-        String query = """
-            SELECT ingredient_id, quantity_needed
-            FROM DishIngredients
-            WHERE dish_id = ?
-        """;
-        
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setInt(1, dishId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    ingredients.put(
-                        rs.getInt("ingredient_id"),
-                        rs.getDouble("quantity_needed")
-                    );
-                }
-            }
+        try {
+            return RecipeCache.getInstance().getDishIngredients(dishId);
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch dish ingredients: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
-        return ingredients;
+        return new HashMap<>();
     }
 } 
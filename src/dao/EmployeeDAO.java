@@ -2,10 +2,10 @@ package dao;
 
 import model.Employee;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
 public class EmployeeDAO {
     private Connection getConnection() throws SQLException {
@@ -18,7 +18,8 @@ public class EmployeeDAO {
                       "LEFT JOIN Roles r ON e.role_id = r.role_id " +
                       "LEFT JOIN TimeShifts ts ON e.time_shiftid = ts.time_shiftid " +
                       "WHERE e.employee_id = ? AND e.is_deleted = FALSE";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, employeeId);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -38,7 +39,8 @@ public class EmployeeDAO {
             LEFT JOIN TimeShifts ts ON e.time_shiftid = ts.time_shiftid
             WHERE e.first_name = ? AND e.last_name = ?
             """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, firstName);
             pstmt.setString(2, lastName);
             ResultSet rs = pstmt.executeQuery();
@@ -58,7 +60,8 @@ public class EmployeeDAO {
                       "LEFT JOIN Roles r ON e.role_id = r.role_id " +
                       "LEFT JOIN TimeShifts ts ON e.time_shiftid = ts.time_shiftid " +
                       "WHERE e.is_deleted = FALSE";
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 Employee emp = new Employee(
@@ -131,6 +134,7 @@ public class EmployeeDAO {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -187,6 +191,7 @@ public class EmployeeDAO {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -206,10 +211,9 @@ public class EmployeeDAO {
             checkStmt.setInt(1, employeeId);
             try (ResultSet rs = checkStmt.executeQuery()) {
                 if (rs.next() && rs.getInt(1) > 0) {
-                    JOptionPane.showMessageDialog(null,
+                    ErrorChannel.rejected(
                         "Cannot delete employee because they are assigned to existing orders.",
-                        "Delete Failed",
-                        JOptionPane.WARNING_MESSAGE);
+                        "Delete Failed");
                     return false;
                 }
             }
@@ -222,17 +226,18 @@ public class EmployeeDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete employee: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
 
     public boolean assignShift(int employeeId, int timeShiftId) {
         String query = "UPDATE Employees SET time_shiftid = ? WHERE employee_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, timeShiftId);
             pstmt.setInt(2, employeeId);
             return pstmt.executeUpdate() > 0;
@@ -244,7 +249,8 @@ public class EmployeeDAO {
 
     public boolean removeShift(int employeeId) {
         String query = "UPDATE Employees SET time_shiftid = NULL WHERE employee_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, employeeId);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -260,7 +266,8 @@ public class EmployeeDAO {
             JOIN TimeShifts ts ON e.time_shiftid = ts.time_shiftid 
             WHERE e.employee_id = ?
         """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, employeeId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -282,7 +289,8 @@ public class EmployeeDAO {
                       "WHERE e.is_deleted = FALSE AND " +
                       "(e.first_name LIKE ? OR e.last_name LIKE ?) " +
                       "ORDER BY e.last_name, e.first_name";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, "%" + searchTerm + "%");
             pstmt.setString(2, "%" + searchTerm + "%");
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -326,10 +334,10 @@ public class EmployeeDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch deleted employees: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return employees;
     }
@@ -344,10 +352,10 @@ public class EmployeeDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to restore employee: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -376,10 +384,10 @@ public class EmployeeDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to swap shifts: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -0,0 +1,201 @@
+package dao;
+
+import model.IngredientBatch;
+import util.DatabaseConnection;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Open (Available or Low) batches that have an expiry date, sorted by that date, so "expiring within N days"
+// is a walk over the head of a sorted map instead of a three-table join. Batch changes made through this
+// application are applied as they commit; changes made elsewhere (other terminals, the data generator) are
+// picked up by a full reload at most RELOAD_MINUTES after the last one.
+public class ExpiringBatchIndex {
+    private static final ExpiringBatchIndex INSTANCE = new ExpiringBatchIndex();
+
+    private static final long RELOAD_MINUTES = 5;
+
+    private static final String BATCH_QUERY = """
+        SELECT b.*, s.name as supplier_name, i.name as ingredient_name
+        FROM IngredientBatches b
+        JOIN Suppliers s ON b.supplier_id = s.supplier_id
+        JOIN Ingredients i ON b.ingredient_id = i.ingredient_id
+        WHERE b.status IN ('Available', 'Low') AND b.expiry_date IS NOT NULL
+        %s
+    """;
+
+    // Expiry date -> batches expiring that day, by batch id
+    private final TreeMap<LocalDate, TreeMap<Integer, IngredientBatch>> byExpiry = new TreeMap<>();
+    private final Map<Integer, IngredientBatch> byId = new HashMap<>();
+    private long loadedAt = 0;
+
+    private ExpiringBatchIndex() {
+    }
+
+    public static ExpiringBatchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    // Open batches expiring on or before today + days (including ones already past their date that the
+    // expiry sweeper has not reached yet), soonest first
+    public List<IngredientBatch> getExpiring(int days) throws SQLException {
+        if (isStale()) {
+            reload();
+        }
+        List<IngredientBatch> batches = new ArrayList<>();
+        synchronized (this) {
+            for (TreeMap<Integer, IngredientBatch> sameDay : byExpiry.headMap(LocalDate.now().plusDays(days), true).values()) {
+                for (IngredientBatch batch : sameDay.values()) {
+                    batches.add(copy(batch));
+                }
+            }
+        }
+        return batches;
+    }
+
+    public void reload() throws SQLException {
+        List<IngredientBatch> loaded = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(BATCH_QUERY.formatted(""))) {
+            while (rs.next()) {
+                loaded.add(fromResultSet(rs));
+            }
+        }
+        synchronized (this) {
+            byExpiry.clear();
+            byId.clear();
+            for (IngredientBatch batch : loaded) {
+                put(batch);
+            }
+            loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    // Re-reads batches that were added or edited; ones no longer open drop out
+    public void refreshBatches(Collection<Integer> batchIds) {
+        if (batchIds.isEmpty() || !isLoaded()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(batchIds);
+        String filter = "AND b.batch_id IN (%s)".formatted(String.join(", ", Collections.nCopies(ids.size(), "?")));
+        List<IngredientBatch> loaded = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BATCH_QUERY.formatted(filter))) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loaded.add(fromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            // The next reload catches up
+            e.printStackTrace();
+            return;
+        }
+        synchronized (this) {
+            for (Integer batchId : ids) {
+                remove(batchId);
+            }
+            for (IngredientBatch batch : loaded) {
+                put(batch);
+            }
+        }
+    }
+
+    // Committed consumption (batch id -> new remaining quantity), with the same status rules as
+    // IngredientBatchDAO.updateBatchQuantity
+    public synchronized void batchesConsumed(Map<Integer, Double> remainingByBatch) {
+        for (Map.Entry<Integer, Double> entry : remainingByBatch.entrySet()) {
+            IngredientBatch batch = byId.get(entry.getKey());
+            if (batch == null) {
+                continue;
+            }
+            double remaining = entry.getValue();
+            if (remaining <= 0) {
+                remove(batch.getBatchId());
+                continue;
+            }
+            batch.setRemainingQuantity(remaining);
+            if (remaining < batch.getQuantity() * 0.2) {
+                batch.setStatus("Low");
+            }
+        }
+    }
+
+    // Batches that were expired or otherwise closed
+    public synchronized void batchesClosed(Collection<Integer> batchIds) {
+        for (Integer batchId : batchIds) {
+            remove(batchId);
+        }
+    }
+
+    private synchronized boolean isLoaded() {
+        return loadedAt != 0;
+    }
+
+    private synchronized boolean isStale() {
+        return System.currentTimeMillis() - loadedAt > RELOAD_MINUTES * 60_000;
+    }
+
+    private void put(IngredientBatch batch) {
+        LocalDate expiry = new java.sql.Date(batch.getExpiryDate().getTime()).toLocalDate();
+        byExpiry.computeIfAbsent(expiry, date -> new TreeMap<>()).put(batch.getBatchId(), batch);
+        byId.put(batch.getBatchId(), batch);
+    }
+
+    private void remove(int batchId) {
+        IngredientBatch batch = byId.remove(batchId);
+        if (batch == null) {
+            return;
+        }
+        LocalDate expiry = new java.sql.Date(batch.getExpiryDate().getTime()).toLocalDate();
+        TreeMap<Integer, IngredientBatch> sameDay = byExpiry.get(expiry);
+        if (sameDay != null) {
+            sameDay.remove(batchId);
+            if (sameDay.isEmpty()) {
+                byExpiry.remove(expiry);
+            }
+        }
+    }
+
+    private static IngredientBatch fromResultSet(ResultSet rs) throws SQLException {
+        IngredientBatch batch = new IngredientBatch();
+        batch.setBatchId(rs.getInt("batch_id"));
+        batch.setIngredientId(rs.getInt("ingredient_id"));
+        batch.setSupplierId(rs.getInt("supplier_id"));
+        batch.setQuantity(rs.getDouble("quantity"));
+        batch.setExpiryDate(rs.getDate("expiry_date"));
+        batch.setPurchasePrice(rs.getDouble("purchase_price"));
+        batch.setRemainingQuantity(rs.getDouble("remaining_quantity"));
+        batch.setStatus(rs.getString("status"));
+        batch.setSupplierName(rs.getString("supplier_name"));
+        batch.setIngredientName(rs.getString("ingredient_name"));
+        return batch;
+    }
+
+    // Callers get their own objects, so editing one (e.g. before updateIngredientBatch) cannot touch the index
+    private static IngredientBatch copy(IngredientBatch batch) {
+        IngredientBatch copy = new IngredientBatch();
+        copy.setBatchId(batch.getBatchId());
+        copy.setIngredientId(batch.getIngredientId());
+        copy.setIngredientName(batch.getIngredientName());
+        copy.setSupplierId(batch.getSupplierId());
+        copy.setSupplierName(batch.getSupplierName());
+        copy.setQuantity(batch.getQuantity());
+        copy.setPurchaseDate(batch.getPurchaseDate());
+        copy.setExpiryDate(batch.getExpiryDate());
+        copy.setPurchasePrice(batch.getPurchasePrice());
+        copy.setRemainingQuantity(batch.getRemainingQuantity());
+        copy.setStatus(batch.getStatus());
+        return copy;
+    }
+}
@@ -2,10 +2,14 @@ package dao;
 
 import model.IngredientBatch;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import javax.swing.JOptionPane;
+import java.util.Map;
 
 public class IngredientBatchDAO {
     private Connection getConnection() throws SQLException {
@@ -22,7 +26,8 @@ public class IngredientBatchDAO {
             ORDER BY b.expiry_date ASC
         """;
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, ingredientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -31,10 +36,10 @@ public class IngredientBatchDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch ingredient batches: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return batches;
     }
@@ -46,7 +51,9 @@ public class IngredientBatchDAO {
             VALUES (?, ?, ?, ?, ?, ?)
         """;
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        boolean added = false;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, batch.getIngredientId());
             stmt.setInt(2, batch.getSupplierId());
             stmt.setDouble(3, batch.getQuantity());
@@ -63,19 +70,23 @@ public class IngredientBatchDAO {
                 try (ResultSet rs = stmt.getGeneratedKeys()) {
                     if (rs.next()) {
                         batch.setBatchId(rs.getInt(1));
-                        return true;
+                        added = true;
                     }
                 }
             }
-            return false;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to add ingredient batch: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
+        // The refresh leases its own connection, so only after this one is back in the pool
+        if (added) {
+            ExpiringBatchIndex.getInstance().refreshBatches(List.of(batch.getBatchId()));
+        }
+        return added;
     }
 
     public boolean updateBatchQuantity(int batchId, double quantityChange) {
@@ -90,50 +101,213 @@ public class IngredientBatchDAO {
             WHERE batch_id = ?
         """;
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        boolean updated = false;
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setDouble(1, quantityChange);
             stmt.setDouble(2, quantityChange);
             stmt.setDouble(3, quantityChange);
             stmt.setInt(4, batchId);
 
-            return stmt.executeUpdate() > 0;
+            updated = stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to update batch quantity: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
+        if (updated) {
+            ExpiringBatchIndex.getInstance().refreshBatches(List.of(batchId));
+        }
+        return updated;
     }
 
-    public List<IngredientBatch> getExpiringBatches(int daysThreshold) {
-        List<IngredientBatch> batches = new ArrayList<>();
-        String query = """
-            SELECT b.*, s.name as supplier_name, i.name as ingredient_name
-            FROM IngredientBatches b
-            JOIN Suppliers s ON b.supplier_id = s.supplier_id
-            JOIN Ingredients i ON b.ingredient_id = i.ingredient_id
-            WHERE b.expiry_date <= DATE_ADD(CURRENT_DATE, INTERVAL ? DAY)
-            AND b.status != 'Depleted' AND b.status != 'Expired'
-            ORDER BY b.expiry_date ASC
-        """;
+    // Takes quantities (ingredient id -> amount) out of each ingredient's open batches, first expiring first;
+    // batches without an expiry date go last. Runs in the caller's transaction, which must already hold the
+    // ingredients' Ingredients rows, so batches of one ingredient are only ever consumed by one order at a time.
+    // Stock not covered by any batch (e.g. recorded before batches were tracked) is simply not batch stock.
+    // Returns the new remaining quantity of every batch touched, for ExpiringBatchIndex once the caller commits.
+    Map<Integer, Double> consumeFirstExpiring(Connection conn, Map<Integer, Double> quantities) throws SQLException {
+        Map<Integer, Double> remainingByBatch = new HashMap<>();
+        if (quantities.isEmpty()) {
+            return remainingByBatch;
+        }
+        List<Integer> ingredientIds = new ArrayList<>(quantities.keySet());
+        String placeholders = String.join(", ", Collections.nCopies(ingredientIds.size(), "?"));
 
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
-            stmt.setInt(1, daysThreshold);
+        // Which batches FEFO would draw from: those whose earlier batches (by expiry, undated last) do not
+        // already cover the need. A plain read off idx_batches_fefo, so nothing is locked yet.
+        StringBuilder needCase = new StringBuilder("CASE ingredient_id");
+        for (int i = 0; i < ingredientIds.size(); i++) {
+            needCase.append(" WHEN ? THEN ?");
+        }
+        needCase.append(" END");
+        String candidateQuery = """
+            SELECT batch_id, remaining_quantity
+            FROM (
+                SELECT batch_id, ingredient_id, remaining_quantity,
+                       SUM(remaining_quantity) OVER (
+                           PARTITION BY ingredient_id
+                           ORDER BY expiry_date IS NULL, expiry_date, batch_id) - remaining_quantity AS covered_before
+                FROM IngredientBatches
+                WHERE ingredient_id IN (%s) AND status IN ('Available', 'Low') AND remaining_quantity > 0
+            ) fefo
+            WHERE covered_before < %s
+        """.formatted(placeholders, needCase);
+        Map<Integer, Double> candidates = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(candidateQuery)) {
+            int index = 1;
+            for (Integer ingredientId : ingredientIds) {
+                stmt.setInt(index++, ingredientId);
+            }
+            for (Integer ingredientId : ingredientIds) {
+                stmt.setInt(index++, ingredientId);
+                stmt.setDouble(index++, quantities.get(ingredientId));
+            }
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    batches.add(createBatchFromResultSet(rs));
+                    candidates.put(rs.getInt("batch_id"), rs.getDouble("remaining_quantity"));
+                }
+            }
+        }
+
+        // Lock just those rows by primary key and take their current values
+        List<OpenBatch> open = new ArrayList<>();
+        boolean stale = false;
+        if (!candidates.isEmpty()) {
+            List<Integer> candidateIds = new ArrayList<>(candidates.keySet());
+            String lockQuery = """
+                SELECT batch_id, ingredient_id, quantity, remaining_quantity, expiry_date, status
+                FROM IngredientBatches
+                WHERE batch_id IN (%s) AND status IN ('Available', 'Low')
+                FOR UPDATE
+            """.formatted(String.join(", ", Collections.nCopies(candidateIds.size(), "?")));
+            try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                for (int i = 0; i < candidateIds.size(); i++) {
+                    stmt.setInt(i + 1, candidateIds.get(i));
+                }
+                open.addAll(readOpenBatches(stmt));
+            }
+            for (OpenBatch batch : open) {
+                stale |= batch.remaining != candidates.get(batch.batchId);
+            }
+            stale |= open.size() != candidates.size();
+        }
+
+        // The plain read uses the transaction's snapshot, which can predate the last change to these batches
+        // (e.g. a previous order in the same group commit). Only then, and only for ingredients still short,
+        // lock the rest of their open batches.
+        Map<Integer, Double> covered = new HashMap<>();
+        for (OpenBatch batch : open) {
+            covered.merge(batch.ingredientId, batch.remaining, Double::sum);
+        }
+        List<Integer> shortIds = new ArrayList<>();
+        for (Integer ingredientId : ingredientIds) {
+            if (covered.getOrDefault(ingredientId, 0.0) < quantities.get(ingredientId)) {
+                shortIds.add(ingredientId);
+            }
+        }
+        if (stale && !shortIds.isEmpty()) {
+            String restQuery = """
+                SELECT batch_id, ingredient_id, quantity, remaining_quantity, expiry_date, status
+                FROM IngredientBatches
+                WHERE ingredient_id IN (%s) AND status IN ('Available', 'Low')
+                FOR UPDATE
+            """.formatted(String.join(", ", Collections.nCopies(shortIds.size(), "?")));
+            try (PreparedStatement stmt = conn.prepareStatement(restQuery)) {
+                for (int i = 0; i < shortIds.size(); i++) {
+                    stmt.setInt(i + 1, shortIds.get(i));
                 }
+                for (OpenBatch batch : readOpenBatches(stmt)) {
+                    if (!candidates.containsKey(batch.batchId)) {
+                        open.add(batch);
+                    }
+                }
+            }
+        }
+        open.sort(Comparator.comparing((OpenBatch b) -> b.expiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(b -> b.batchId));
+
+        // Walk the batches once, handing each ingredient's remaining need to its earliest batches
+        Map<Integer, Double> stillNeeded = new HashMap<>(quantities);
+        List<OpenBatch> touched = new ArrayList<>();
+        for (OpenBatch batch : open) {
+            double needed = stillNeeded.getOrDefault(batch.ingredientId, 0.0);
+            if (needed <= 0 || batch.remaining <= 0) {
+                continue;
+            }
+            double taken = Math.min(needed, batch.remaining);
+            batch.remaining = Math.round((batch.remaining - taken) * 100) / 100.0;
+            stillNeeded.put(batch.ingredientId, Math.round((needed - taken) * 100) / 100.0);
+            touched.add(batch);
+        }
+        if (touched.isEmpty()) {
+            return remainingByBatch;
+        }
+
+        // Same status rules as updateBatchQuantity, decided here from the locked rows, in one statement
+        StringBuilder remainingCase = new StringBuilder("CASE batch_id");
+        StringBuilder statusCase = new StringBuilder("CASE batch_id");
+        for (int i = 0; i < touched.size(); i++) {
+            remainingCase.append(" WHEN ? THEN ?");
+            statusCase.append(" WHEN ? THEN ?");
+        }
+        remainingCase.append(" END");
+        statusCase.append(" END");
+        String updateQuery = """
+            UPDATE IngredientBatches
+            SET remaining_quantity = %s,
+                status = %s
+            WHERE batch_id IN (%s)
+        """.formatted(remainingCase, statusCase, String.join(", ", Collections.nCopies(touched.size(), "?")));
+        try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+            int index = 1;
+            for (OpenBatch batch : touched) {
+                stmt.setInt(index++, batch.batchId);
+                stmt.setDouble(index++, batch.remaining);
+            }
+            for (OpenBatch batch : touched) {
+                stmt.setInt(index++, batch.batchId);
+                stmt.setString(index++, batch.remaining <= 0 ? "Depleted"
+                    : batch.remaining < batch.quantity * 0.2 ? "Low" : batch.status);
             }
+            for (OpenBatch batch : touched) {
+                stmt.setInt(index++, batch.batchId);
+            }
+            stmt.executeUpdate();
+        }
+        for (OpenBatch batch : touched) {
+            remainingByBatch.put(batch.batchId, batch.remaining);
+        }
+        return remainingByBatch;
+    }
+
+    private static List<OpenBatch> readOpenBatches(PreparedStatement stmt) throws SQLException {
+        List<OpenBatch> batches = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                batches.add(new OpenBatch(rs.getInt("batch_id"), rs.getInt("ingredient_id"),
+                    rs.getDouble("quantity"), rs.getDouble("remaining_quantity"), rs.getDate("expiry_date"),
+                    rs.getString("status")));
+            }
+        }
+        return batches;
+    }
+
+    // Answered from ExpiringBatchIndex; the database is only read when the index reloads
+    public List<IngredientBatch> getExpiringBatches(int daysThreshold) {
+        try {
+            return ExpiringBatchIndex.getInstance().getExpiring(daysThreshold);
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch expiring batches: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
+            return new ArrayList<>();
         }
-        return batches;
     }
 
     private IngredientBatch createBatchFromResultSet(ResultSet rs) throws SQLException {
@@ -154,4 +328,22 @@ public class IngredientBatchDAO {
         }
         return batch;
     }
-} 
\ No newline at end of file
+
+    private static class OpenBatch {
+        private final int batchId;
+        private final int ingredientId;
+        private final double quantity;
+        private double remaining;
+        private final Date expiryDate;
+        private final String status;
+
+        OpenBatch(int batchId, int ingredientId, double quantity, double remaining, Date expiryDate, String status) {
+            this.batchId = batchId;
+            this.ingredientId = ingredientId;
+            this.quantity = quantity;
+            this.remaining = remaining;
+            this.expiryDate = expiryDate;
+            this.status = status;
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package dao;
 
+import model.DeliveryLine;
+import model.DeliveryLineResult;
 import model.Ingredient;
 import model.Ingredient.SupplierPrice;
 import util.DatabaseConnection;
-import javax.swing.JOptionPane;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.TreeMap;
 
 public class IngredientDAO {
     private Connection getConnection() throws SQLException {
@@ -21,7 +28,8 @@ public class IngredientDAO {
                       "JOIN Units u ON i.unit_id = u.unit_id " +
                       "ORDER BY i.name";
         
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             
             while (rs.next()) {
@@ -31,10 +39,10 @@ public class IngredientDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch ingredients: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return ingredients;
     }
@@ -44,7 +52,8 @@ public class IngredientDAO {
                       "JOIN Units u ON i.unit_id = u.unit_id " +
                       "WHERE i.ingredient_id = ?";
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, ingredientId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -55,14 +64,72 @@ public class IngredientDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch ingredient: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return null;
     }
 
+    // Several ingredients with their units and supplier prices in two queries, keyed by id; ids that do not
+    // exist are left out
+    public Map<Integer, Ingredient> getIngredientsByIds(Collection<Integer> ingredientIds) {
+        Map<Integer, Ingredient> ingredients = new LinkedHashMap<>();
+        if (ingredientIds.isEmpty()) {
+            return ingredients;
+        }
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(ingredientIds));
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String ingredientQuery = """
+            SELECT i.*, u.unit_name
+            FROM Ingredients i
+            JOIN Units u ON i.unit_id = u.unit_id
+            WHERE i.ingredient_id IN (%s)
+            ORDER BY i.name
+        """.formatted(placeholders);
+        String priceQuery = "SELECT * FROM IngredientSuppliers WHERE ingredient_id IN (%s)".formatted(placeholders);
+
+        try (Connection conn = getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(ingredientQuery)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    stmt.setInt(i + 1, ids.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Ingredient ingredient = createIngredientFromResultSet(rs);
+                        ingredients.put(ingredient.getIngredientId(), ingredient);
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(priceQuery)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    stmt.setInt(i + 1, ids.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Ingredient ingredient = ingredients.get(rs.getInt("ingredient_id"));
+                        if (ingredient != null) {
+                            ingredient.addSupplierPrice(rs.getInt("supplier_id"), new SupplierPrice(
+                                rs.getDouble("unit_price"),
+                                rs.getInt("lead_time_days"),
+                                rs.getDouble("minimum_order_quantity"),
+                                rs.getBoolean("is_primary_supplier")));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            ErrorChannel.databaseError(
+                "Failed to fetch ingredients: " + e.getMessage(),
+                "Database Error",
+                e);
+            return new LinkedHashMap<>();
+        }
+        return ingredients;
+    }
+
     private Ingredient createIngredientFromResultSet(ResultSet rs) throws SQLException {
         return new Ingredient(
             rs.getInt("ingredient_id"),
@@ -80,7 +147,8 @@ public class IngredientDAO {
     private void loadSupplierPrices(Ingredient ingredient) throws SQLException {
         String query = "SELECT * FROM IngredientSuppliers WHERE ingredient_id = ?";
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, ingredient.getIngredientId());
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -139,15 +207,16 @@ public class IngredientDAO {
                 }
             }
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to add ingredient: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -222,15 +291,16 @@ public class IngredientDAO {
                 }
             }
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to update ingredient: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -250,10 +320,9 @@ public class IngredientDAO {
                 checkStmt.setInt(1, ingredientId);
                 try (ResultSet rs = checkStmt.executeQuery()) {
                     if (rs.next() && rs.getInt(1) > 0) {
-                        JOptionPane.showMessageDialog(null,
+                        ErrorChannel.rejected(
                             "Cannot delete ingredient because it is used in one or more dishes.",
-                            "Delete Failed",
-                            JOptionPane.WARNING_MESSAGE);
+                            "Delete Failed");
                         return false;
                     }
                 }
@@ -287,15 +356,16 @@ public class IngredientDAO {
                 }
             }
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete ingredient: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         } finally {
             if (conn != null) {
                 try {
                     conn.setAutoCommit(true);
+                    conn.close();
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
@@ -303,32 +373,23 @@ public class IngredientDAO {
         }
     }
 
+    // Which ingredients are low comes from LowStockWatch; only those rows are read
     public List<Ingredient> getLowStockIngredients() {
-        List<Ingredient> lowStockIngredients = new ArrayList<>();
-        String query = "SELECT i.*, u.unit_name FROM Ingredients i " +
-                      "JOIN Units u ON i.unit_id = u.unit_id " +
-                      "WHERE i.quantity_in_stock <= i.minimum_stock_level AND i.is_deleted = FALSE";
-        
-        try (Statement stmt = getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                Ingredient ingredient = createIngredientFromResultSet(rs);
-                loadSupplierPrices(ingredient);
-                lowStockIngredients.add(ingredient);
-            }
+        try {
+            return new ArrayList<>(getIngredientsByIds(LowStockWatch.getInstance().getLowStockIngredientIds()).values());
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch low stock ingredients: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
+            return new ArrayList<>();
         }
-        return lowStockIngredients;
     }
 
     public boolean updateStock(int ingredientId, double quantity, int employeeId, String transactionType, String notes) {
         Connection conn = null;
+        boolean recorded = false;
         try {
             conn = getConnection();
             
@@ -355,19 +416,245 @@ public class IngredientDAO {
                         transactionStmt.setString(4, transactionType);
                         transactionStmt.setString(5, notes);
                         
-                        return transactionStmt.executeUpdate() > 0;
+                        recorded = transactionStmt.executeUpdate() > 0;
                     }
                 }
             }
-            return false;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to update stock: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (recorded) {
+            // After the connection is closed: DishAvailability may need one to write is_available
+            DishAvailability.getInstance().stockAdjusted(ingredientId, quantity);
+            StockLedger.getInstance().stockAdjusted(ingredientId, quantity);
+            LowStockWatch.getInstance().stockAdjusted(ingredientId, quantity);
         }
+        return recorded;
+    }
+
+    // Receives a whole supplier delivery in one transaction: one UPDATE for every ingredient's stock, one
+    // multi-row insert of Purchase transactions and one of IngredientBatches. Either every line is received
+    // or none is; the result has one entry per line, in order.
+    public List<DeliveryLineResult> receiveDelivery(int supplierId, int employeeId, List<DeliveryLine> lines,
+                                                    String notes) {
+        if (lines.isEmpty()) {
+            ErrorChannel.invalidInput("The delivery has no lines.", "Invalid Delivery");
+            return new ArrayList<>();
+        }
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        Map<Integer, Double> received;
+        List<Integer> batchIds = new ArrayList<>();
+        List<DeliveryLineResult> results = new ArrayList<>();
+        try {
+            conn = getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            boolean supplierActive = false;
+            String supplierQuery = "SELECT status, is_deleted FROM Suppliers WHERE supplier_id = ?";
+            try (PreparedStatement stmt = conn.prepareStatement(supplierQuery)) {
+                stmt.setInt(1, supplierId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    supplierActive = rs.next() && !rs.getBoolean("is_deleted") && "Active".equals(rs.getString("status"));
+                }
+            }
+
+            // Lock in ascending id order, like order placement, so a delivery and an order never deadlock
+            Map<Integer, Double> stock = new TreeMap<>();
+            for (DeliveryLine line : lines) {
+                stock.put(line.getIngredientId(), null);
+            }
+            List<Integer> ingredientIds = new ArrayList<>(stock.keySet());
+            String lockQuery = """
+                SELECT ingredient_id, quantity_in_stock
+                FROM Ingredients
+                WHERE ingredient_id IN (%s) AND is_deleted = FALSE
+                ORDER BY ingredient_id
+                FOR UPDATE
+            """.formatted(String.join(", ", Collections.nCopies(ingredientIds.size(), "?")));
+            try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                for (int i = 0; i < ingredientIds.size(); i++) {
+                    stmt.setInt(i + 1, ingredientIds.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        stock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                    }
+                }
+            }
+
+            List<String> problems = new ArrayList<>();
+            java.sql.Date today = java.sql.Date.valueOf(java.time.LocalDate.now());
+            for (DeliveryLine line : lines) {
+                String problem = null;
+                if (!supplierActive) {
+                    problem = "Supplier #" + supplierId + " is not an active supplier";
+                } else if (stock.get(line.getIngredientId()) == null) {
+                    problem = "Ingredient #" + line.getIngredientId() + " does not exist or was deleted";
+                } else if (line.getQuantity() <= 0) {
+                    problem = "Quantity must be positive";
+                } else if (line.getUnitPrice() < 0) {
+                    problem = "Unit price cannot be negative";
+                } else if (line.getExpiryDate() != null && new java.sql.Date(line.getExpiryDate().getTime()).before(today)) {
+                    problem = "Expiry date is already past";
+                }
+                problems.add(problem);
+            }
+            if (problems.stream().anyMatch(problem -> problem != null)) {
+                conn.rollback();
+                StringBuilder summary = new StringBuilder("The delivery was not received:");
+                for (int i = 0; i < lines.size(); i++) {
+                    String problem = problems.get(i);
+                    if (problem != null) {
+                        summary.append(String.format("%nLine %d: %s", i + 1, problem));
+                    }
+                    results.add(new DeliveryLineResult(i + 1, lines.get(i).getIngredientId(), false, 0, 0,
+                        problem != null ? problem : "Not received because another line was rejected"));
+                }
+                ErrorChannel.invalidInput(summary.toString(), "Invalid Delivery");
+                return results;
+            }
+
+            // Lines for the same ingredient add up; quantities have two decimals
+            received = new TreeMap<>();
+            for (DeliveryLine line : lines) {
+                received.merge(line.getIngredientId(), line.getQuantity(), Double::sum);
+            }
+            received.replaceAll((ingredientId, quantity) -> Math.round(quantity * 100) / 100.0);
+
+            StringBuilder amountCase = new StringBuilder("CASE ingredient_id");
+            for (int i = 0; i < received.size(); i++) {
+                amountCase.append(" WHEN ? THEN ?");
+            }
+            amountCase.append(" END");
+            String updateQuery = """
+                UPDATE Ingredients
+                SET quantity_in_stock = quantity_in_stock + (%s),
+                    last_restock_date = CURRENT_TIMESTAMP,
+                    last_restocked_by = ?
+                WHERE ingredient_id IN (%s)
+            """.formatted(amountCase, String.join(", ", Collections.nCopies(received.size(), "?")));
+            try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+                int index = 1;
+                for (Map.Entry<Integer, Double> entry : received.entrySet()) {
+                    stmt.setInt(index++, entry.getKey());
+                    stmt.setDouble(index++, entry.getValue());
+                }
+                stmt.setInt(index++, employeeId);
+                for (Integer ingredientId : received.keySet()) {
+                    stmt.setInt(index++, ingredientId);
+                }
+                stmt.executeUpdate();
+            }
+
+            String transactionQuery = """
+                INSERT INTO IngredientTransactions
+                (ingredient_id, transaction_type, quantity_change, unit_price, supplier_id, employee_id, notes)
+                VALUES %s
+            """.formatted(String.join(", ", Collections.nCopies(lines.size(), "(?, 'Purchase', ?, ?, ?, ?, ?)")));
+            try (PreparedStatement stmt = conn.prepareStatement(transactionQuery)) {
+                int index = 1;
+                for (DeliveryLine line : lines) {
+                    stmt.setInt(index++, line.getIngredientId());
+                    stmt.setDouble(index++, line.getQuantity());
+                    stmt.setDouble(index++, line.getUnitPrice());
+                    stmt.setInt(index++, supplierId);
+                    stmt.setInt(index++, employeeId);
+                    stmt.setString(index++, notes);
+                }
+                stmt.executeUpdate();
+            }
+
+            String batchQuery = """
+                INSERT INTO IngredientBatches
+                (ingredient_id, supplier_id, quantity, expiry_date, purchase_price, remaining_quantity)
+                VALUES %s
+            """.formatted(String.join(", ", Collections.nCopies(lines.size(), "(?, ?, ?, ?, ?, ?)")));
+            try (PreparedStatement stmt = conn.prepareStatement(batchQuery, Statement.RETURN_GENERATED_KEYS)) {
+                int index = 1;
+                for (DeliveryLine line : lines) {
+                    stmt.setInt(index++, line.getIngredientId());
+                    stmt.setInt(index++, supplierId);
+                    stmt.setDouble(index++, line.getQuantity());
+                    if (line.getExpiryDate() != null) {
+                        stmt.setDate(index++, new java.sql.Date(line.getExpiryDate().getTime()));
+                    } else {
+                        stmt.setNull(index++, Types.DATE);
+                    }
+                    stmt.setDouble(index++, line.getUnitPrice());
+                    stmt.setDouble(index++, line.getQuantity());
+                }
+                stmt.executeUpdate();
+                // Keys of a multi-row insert come back in row order
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        batchIds.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (batchIds.size() != lines.size()) {
+                throw new SQLException("Expected " + lines.size() + " batch ids, got " + batchIds.size());
+            }
+
+            conn.commit();
+
+            for (int i = 0; i < lines.size(); i++) {
+                int ingredientId = lines.get(i).getIngredientId();
+                double stockAfter = Math.round((stock.get(ingredientId) + received.get(ingredientId)) * 100) / 100.0;
+                results.add(new DeliveryLineResult(i + 1, ingredientId, true, batchIds.get(i), stockAfter, "Received"));
+            }
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    rollbackEx.printStackTrace();
+                }
+            }
+            e.printStackTrace();
+            ErrorChannel.databaseError(
+                "Failed to receive delivery: " + e.getMessage(),
+                "Database Error",
+                e);
+            results.clear();
+            for (int i = 0; i < lines.size(); i++) {
+                results.add(new DeliveryLineResult(i + 1, lines.get(i).getIngredientId(), false, 0, 0,
+                    "Not received: " + e.getMessage()));
+            }
+            return results;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(originalAutoCommit);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        // Published once the connection is back in the pool, since listeners may lease their own
+        for (Map.Entry<Integer, Double> entry : received.entrySet()) {
+            StockLedger.getInstance().stockAdjusted(entry.getKey(), entry.getValue());
+        }
+        DishAvailability.getInstance().stockAdjusted(received);
+        LowStockWatch.getInstance().stockAdjusted(received);
+        ExpiringBatchIndex.getInstance().refreshBatches(batchIds);
+        return results;
     }
 
     public Map<Integer, Double> calculateIngredientCosts(int productId) {
@@ -377,7 +664,8 @@ public class IngredientDAO {
                       "JOIN Ingredients i ON di.ingredient_id = i.ingredient_id " +
                       "WHERE di.product_id = ? AND i.is_deleted = FALSE";
         
-        try (PreparedStatement stmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setInt(1, productId);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -386,10 +674,10 @@ public class IngredientDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to calculate ingredient costs: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return costs;
     }
@@ -2,10 +2,10 @@ package dao;
 
 import model.Inventory;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
 public class InventoryDAO {
     private Connection getConnection() throws SQLException {
@@ -27,10 +27,10 @@ public class InventoryDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch inventory items: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return items;
     }
@@ -42,7 +42,8 @@ public class InventoryDAO {
             JOIN Categories c ON i.category_id = c.category_id 
             WHERE i.product_id = ?
             """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, productId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -64,7 +65,8 @@ public class InventoryDAO {
 
     public boolean updateInventoryItem(Inventory item) {
         String query = "UPDATE InventoryItems SET product_name = ?, category = ?, quantity = ?, make_price = ?, sell_price = ? WHERE product_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, item.getProductName());
             pstmt.setInt(2, item.getCategoryId());
             pstmt.setInt(3, item.getQuantity());
@@ -80,7 +82,8 @@ public class InventoryDAO {
 
     public boolean addInventoryItem(Inventory item) {
         String query = "INSERT INTO InventoryItems (product_name, category, quantity, make_price, sell_price) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, item.getProductName());
             pstmt.setInt(2, item.getCategoryId());
             pstmt.setInt(3, item.getQuantity());
@@ -138,7 +141,8 @@ public class InventoryDAO {
                 last_restock = CURRENT_TIMESTAMP
             WHERE product_id = ?
         """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, quantity);
             pstmt.setInt(2, quantity);
             pstmt.setInt(3, productId);
@@ -182,10 +186,10 @@ public class InventoryDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch deleted inventory items: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return items;
     }
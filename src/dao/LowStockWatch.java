@@ -0,0 +1,209 @@
+package dao;
+
+import util.DatabaseConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Keeps the set of ingredients at or below their minimum stock level (Ingredient.isLowStock), fed by the same
+// stock changes as DishAvailability, so low-stock lists are a set lookup instead of a table scan. Listeners
+// hear about an ingredient only when it crosses its threshold, not on every change.
+public class LowStockWatch {
+    private static final LowStockWatch INSTANCE = new LowStockWatch();
+
+    public interface Listener {
+        // Called with every ingredient that crossed its threshold: true if it is now low, false if restocked
+        void lowStockChanged(Map<Integer, Boolean> lowByIngredient);
+    }
+
+    private final Map<Integer, Double> stock = new HashMap<>();
+    private final Map<Integer, Double> minimum = new HashMap<>();
+    private final Set<Integer> low = new HashSet<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private boolean loaded = false;
+
+    private LowStockWatch() {
+    }
+
+    public static LowStockWatch getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public Set<Integer> getLowStockIngredientIds() throws SQLException {
+        if (!isLoaded()) {
+            loadAll();
+        }
+        synchronized (this) {
+            return new HashSet<>(low);
+        }
+    }
+
+    public void loadAll() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            loadAll(conn);
+        }
+    }
+
+    public void loadAll(Connection conn) throws SQLException {
+        Map<Integer, Double> loadedStock = new HashMap<>();
+        Map<Integer, Double> loadedMinimum = new HashMap<>();
+        String query = """
+            SELECT i.ingredient_id, %s AS quantity_in_stock, i.minimum_stock_level
+            FROM Ingredients i
+            WHERE i.is_deleted = FALSE
+        """.formatted(DishAvailability.STOCK_COLUMN);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                loadedStock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                loadedMinimum.put(rs.getInt("ingredient_id"), rs.getDouble("minimum_stock_level"));
+            }
+        }
+
+        Map<Integer, Boolean> crossed;
+        synchronized (this) {
+            Set<Integer> before = new HashSet<>(low);
+            stock.clear();
+            stock.putAll(loadedStock);
+            minimum.clear();
+            minimum.putAll(loadedMinimum);
+            low.clear();
+            for (Integer ingredientId : stock.keySet()) {
+                if (isBelowMinimum(ingredientId)) {
+                    low.add(ingredientId);
+                }
+            }
+            crossed = new HashMap<>();
+            if (loaded) {
+                for (Integer ingredientId : before) {
+                    if (!low.contains(ingredientId)) {
+                        crossed.put(ingredientId, false);
+                    }
+                }
+                for (Integer ingredientId : low) {
+                    if (!before.contains(ingredientId)) {
+                        crossed.put(ingredientId, true);
+                    }
+                }
+            }
+            loaded = true;
+        }
+        notifyListeners(crossed);
+    }
+
+    public void stockAdjusted(int ingredientId, double quantityChange) {
+        stockAdjusted(Map.of(ingredientId, quantityChange));
+    }
+
+    // Relative changes that were just committed, in any order
+    public void stockAdjusted(Map<Integer, Double> quantityChanges) {
+        if (quantityChanges.isEmpty() || !isLoaded()) {
+            return;
+        }
+        Map<Integer, Boolean> crossed;
+        synchronized (this) {
+            for (Map.Entry<Integer, Double> entry : quantityChanges.entrySet()) {
+                Double current = stock.get(entry.getKey());
+                if (current != null) {
+                    stock.put(entry.getKey(), Math.round((current + entry.getValue()) * 100) / 100.0);
+                }
+            }
+            crossed = recheck(quantityChanges.keySet());
+        }
+        notifyListeners(crossed);
+    }
+
+    // Re-read stock and minimum level of the given ingredients after an edit, add, delete or restore
+    public void refreshIngredients(Collection<Integer> ingredientIds) {
+        if (ingredientIds.isEmpty() || !isLoaded()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(new HashSet<>(ingredientIds));
+        String query = """
+            SELECT i.ingredient_id, %s AS quantity_in_stock, i.minimum_stock_level
+            FROM Ingredients i
+            WHERE i.ingredient_id IN (%s) AND i.is_deleted = FALSE
+        """.formatted(DishAvailability.STOCK_COLUMN, String.join(", ", Collections.nCopies(ids.size(), "?")));
+
+        Map<Integer, Double> freshStock = new HashMap<>();
+        Map<Integer, Double> freshMinimum = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    freshStock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                    freshMinimum.put(rs.getInt("ingredient_id"), rs.getDouble("minimum_stock_level"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        Map<Integer, Boolean> crossed;
+        synchronized (this) {
+            for (Integer ingredientId : ids) {
+                // Deleted ingredients are no longer watched
+                if (freshStock.containsKey(ingredientId)) {
+                    stock.put(ingredientId, freshStock.get(ingredientId));
+                    minimum.put(ingredientId, freshMinimum.get(ingredientId));
+                } else {
+                    stock.remove(ingredientId);
+                    minimum.remove(ingredientId);
+                }
+            }
+            crossed = recheck(ids);
+        }
+        notifyListeners(crossed);
+    }
+
+    // Must hold the monitor
+    private Map<Integer, Boolean> recheck(Collection<Integer> ingredientIds) {
+        Map<Integer, Boolean> crossed = new HashMap<>();
+        for (Integer ingredientId : ingredientIds) {
+            boolean isLow = stock.containsKey(ingredientId) && isBelowMinimum(ingredientId);
+            boolean wasLow = isLow ? !low.add(ingredientId) : low.remove(ingredientId);
+            if (isLow != wasLow) {
+                crossed.put(ingredientId, isLow);
+            }
+        }
+        return crossed;
+    }
+
+    // Same rule as Ingredient.isLowStock, on two-decimal quantities
+    private boolean isBelowMinimum(int ingredientId) {
+        return Math.round(stock.get(ingredientId) * 100) <= Math.round(minimum.getOrDefault(ingredientId, 0.0) * 100);
+    }
+
+    private void notifyListeners(Map<Integer, Boolean> crossed) {
+        if (crossed.isEmpty()) {
+            return;
+        }
+        Map<Integer, Boolean> snapshot = Collections.unmodifiableMap(new HashMap<>(crossed));
+        for (Listener listener : listeners) {
+            listener.lowStockChanged(snapshot);
+        }
+    }
+
+    private synchronized boolean isLoaded() {
+        return loaded;
+    }
+}
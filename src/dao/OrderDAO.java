@@ -3,20 +3,27 @@ package dao;
 import model.Order;
 import model.OrderItem;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import javax.swing.JOptionPane;
+import java.util.TreeMap;
 
 public class OrderDAO {
-    private IngredientDAO ingredientDAO;
-    private DishDAO dishDAO;
+    // Upper bound on ids bound into one IN (...) list
+    private static final int MAX_IN_LIST = 1000;
+
+    private final SalesRollupDAO salesRollupDAO;
+    private final StockReservationDAO reservationDAO;
+    private final IngredientBatchDAO batchDAO;
 
     public OrderDAO() {
-        this.ingredientDAO = new IngredientDAO();
-        this.dishDAO = new DishDAO();
+        this.salesRollupDAO = new SalesRollupDAO();
+        this.reservationDAO = new StockReservationDAO();
+        this.batchDAO = new IngredientBatchDAO();
     }
 
     private Connection getConnection() throws SQLException {
@@ -25,24 +32,21 @@ public class OrderDAO {
 
     public List<Order> getAllOrders() {
         List<Order> orders = new ArrayList<>();
-        String query = "SELECT * FROM Orders WHERE is_deleted = FALSE ORDER BY order_datetime DESC";
-        try (Statement stmt = getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                Order order = new Order(
-                    rs.getInt("order_id"),
-                    rs.getInt("customer_id"),
-                    rs.getTimestamp("order_datetime"),
-                    rs.getString("order_type"),
-                    rs.getString("order_status"),
-                    rs.getString("payment_status"),
-                    rs.getDouble("total_amount"),
-                    rs.getString("payment_method")
-                );
-                order.setItems(getOrderItems(order.getOrderId()));
-                order.setAssignedEmployees(getAssignedEmployees(order.getOrderId()));
-                orders.add(order);
+        String query = """
+            SELECT o.*, c.first_name, c.last_name
+            FROM Orders o
+            JOIN Customers c ON o.customer_id = c.customer_id
+            WHERE o.is_deleted = FALSE
+            ORDER BY o.order_datetime DESC
+        """;
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    orders.add(mapResultSetToOrder(rs));
+                }
             }
+            loadOrderDetails(conn, orders);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -50,36 +54,148 @@ public class OrderDAO {
     }
 
     public Order getOrderById(int orderId) {
-        String query = "SELECT * FROM Orders WHERE order_id = ? AND is_deleted = FALSE";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        String query = """
+            SELECT o.*, c.first_name, c.last_name
+            FROM Orders o
+            JOIN Customers c ON o.customer_id = c.customer_id
+            WHERE o.order_id = ? AND o.is_deleted = FALSE
+        """;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, orderId);
+            Order order = null;
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    Order order = new Order(
-                        rs.getInt("order_id"),
-                        rs.getInt("customer_id"),
-                        rs.getTimestamp("order_datetime"),
-                        rs.getString("order_type"),
-                        rs.getString("order_status"),
-                        rs.getString("payment_status"),
-                        rs.getDouble("total_amount"),
-                        rs.getString("payment_method")
-                    );
-                    order.setItems(getOrderItems(order.getOrderId()));
-                    order.setAssignedEmployees(getAssignedEmployees(order.getOrderId()));
-                    return order;
+                    order = mapResultSetToOrder(rs);
                 }
             }
+            if (order != null) {
+                loadOrderDetails(conn, List.of(order));
+            }
+            return order;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    // Keyset pagination over non-deleted orders, newest first. Pass null for the first page, then the
+    // order_datetime and order_id of the last order already shown to continue after it. Unlike OFFSET,
+    // every page is an index range read of pageSize rows no matter how deep into history it is.
+    public List<Order> getOrdersPage(Timestamp afterDateTime, int afterOrderId, int pageSize) {
+        List<Order> orders = new ArrayList<>();
+        String keysetCondition = afterDateTime == null ? "" :
+            "AND (o.order_datetime < ? OR (o.order_datetime = ? AND o.order_id < ?))";
+        String query = """
+            SELECT o.*, c.first_name, c.last_name
+            FROM Orders o
+            JOIN Customers c ON o.customer_id = c.customer_id
+            WHERE o.is_deleted = FALSE
+            %s
+            ORDER BY o.order_datetime DESC, o.order_id DESC
+            LIMIT ?
+        """.formatted(keysetCondition);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int index = 1;
+            if (afterDateTime != null) {
+                pstmt.setTimestamp(index++, afterDateTime);
+                pstmt.setTimestamp(index++, afterDateTime);
+                pstmt.setInt(index++, afterOrderId);
+            }
+            pstmt.setInt(index, pageSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapResultSetToOrder(rs));
+                }
+            }
+            loadOrderDetails(conn, orders);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return orders;
+    }
+
+    private Order mapResultSetToOrder(ResultSet rs) throws SQLException {
+        Order order = new Order(
+            rs.getInt("order_id"),
+            rs.getInt("customer_id"),
+            rs.getTimestamp("order_datetime"),
+            rs.getString("order_type"),
+            rs.getString("order_status"),
+            rs.getString("payment_status"),
+            rs.getDouble("total_amount"),
+            rs.getString("payment_method")
+        );
+        order.setCustomerName(rs.getString("first_name") + " " + rs.getString("last_name"));
+        return order;
+    }
+
+    // Fills in items and assigned employees for a whole list of orders with one query per table
+    // (per chunk of MAX_IN_LIST ids) instead of two queries per order.
+    private void loadOrderDetails(Connection conn, List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Order> ordersById = new HashMap<>();
+        for (Order order : orders) {
+            order.setItems(new ArrayList<>());
+            order.setAssignedEmployees(new ArrayList<>());
+            ordersById.put(order.getOrderId(), order);
+        }
+
+        List<Integer> orderIds = new ArrayList<>(ordersById.keySet());
+        for (int from = 0; from < orderIds.size(); from += MAX_IN_LIST) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + MAX_IN_LIST, orderIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+            String itemsQuery = """
+                SELECT oi.*, d.name as dish_name
+                FROM OrderItems oi
+                JOIN Dishes d ON oi.dish_id = d.dish_id
+                WHERE oi.order_id IN (%s)
+            """.formatted(placeholders);
+            try (PreparedStatement pstmt = conn.prepareStatement(itemsQuery)) {
+                bindIds(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        OrderItem item = new OrderItem(
+                            rs.getInt("order_id"),
+                            rs.getInt("dish_id"),
+                            rs.getString("dish_name"),
+                            rs.getInt("quantity"),
+                            rs.getDouble("price_at_time")
+                        );
+                        ordersById.get(item.getOrderId()).addItem(item);
+                    }
+                }
+            }
+
+            String employeesQuery = "SELECT order_id, employee_id FROM AssignedEmployeesToOrders " +
+                                  "WHERE order_id IN (" + placeholders + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(employeesQuery)) {
+                bindIds(pstmt, chunk);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ordersById.get(rs.getInt("order_id")).addAssignedEmployee(rs.getInt("employee_id"));
+                    }
+                }
+            }
+        }
+    }
+
+    private void bindIds(PreparedStatement pstmt, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            pstmt.setInt(i + 1, ids.get(i));
+        }
+    }
+
     public List<Integer> getAssignedEmployees(int orderId) {
         List<Integer> employees = new ArrayList<>();
         String query = "SELECT employee_id FROM AssignedEmployeesToOrders WHERE order_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, orderId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -95,66 +211,22 @@ public class OrderDAO {
     public int createOrder(Order order) {
         Connection conn = null;
         boolean originalAutoCommit = false;
+        StockDeduction deduction = new StockDeduction();
+        int placedOrderId;
         try {
             conn = getConnection();
             originalAutoCommit = conn.getAutoCommit();
             conn.setAutoCommit(false);
 
-            // First insert the order to get the order ID
-            String query = """
-                INSERT INTO Orders (customer_id, order_type, order_status, total_amount, payment_status)
-                VALUES (?, ?, ?, ?, ?)
-            """;
-            
-            int orderId;
-            try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-                stmt.setInt(1, order.getCustomerId());
-                stmt.setString(2, order.getOrderType());
-                stmt.setString(3, order.getOrderStatus());
-                stmt.setDouble(4, order.getTotalAmount());
-                stmt.setString(5, order.getPaymentStatus());
-                
-                int affectedRows = stmt.executeUpdate();
-                if (affectedRows == 0) {
-                    conn.rollback();
-                    return -1;
-                }
-
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        orderId = rs.getInt(1);
-                        order.setOrderId(orderId);
-                    } else {
-                        conn.rollback();
-                        return -1;
-                    }
-                }
-            }
-
-            // Now check and deduct ingredients with the valid order ID
-            if (!deductIngredients(conn, orderId, order.getItems())) {
-                conn.rollback();
-                JOptionPane.showMessageDialog(null,
-                    "Failed to place order. Please check ingredient availability.",
-                    "Order Error",
-                    JOptionPane.ERROR_MESSAGE);
-                return -1;
-            }
-
-            // Add order items
-            if (!addOrderItems(conn, orderId, order.getItems())) {
-                conn.rollback();
-                return -1;
-            }
-
-            // Assign employees
-            if (!assignEmployeesToOrder(conn, orderId, order.getAssignedEmployees())) {
+            int orderId = insertOrder(conn, order, deduction);
+            if (orderId < 0) {
                 conn.rollback();
+                deduction.rolledBack();
                 return -1;
             }
 
             conn.commit();
-            return orderId;
+            placedOrderId = orderId;
         } catch (SQLException e) {
             try {
                 if (conn != null) {
@@ -163,11 +235,12 @@ public class OrderDAO {
             } catch (SQLException ex) {
                 ex.printStackTrace();
             }
+            deduction.rolledBack();
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to create order: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return -1;
         } finally {
             try {
@@ -179,79 +252,231 @@ public class OrderDAO {
                 e.printStackTrace();
             }
         }
+        // Listeners may need connections of their own, so publish only once this one is back in the pool
+        deduction.committed();
+        return placedOrderId;
     }
 
-    private boolean deductIngredients(Connection conn, int orderId, List<OrderItem> items) throws SQLException {
-        // Get all ingredients needed for this order
-        Map<Integer, Double> totalIngredientsNeeded = new HashMap<>();
-        
-        // Calculate total ingredients needed
-        for (OrderItem item : items) {
-            Map<Integer, Double> dishIngredients = dishDAO.getDishIngredients(item.getDishId());
-            for (Map.Entry<Integer, Double> entry : dishIngredients.entrySet()) {
-                int ingredientId = entry.getKey();
-                double quantityPerDish = entry.getValue();
-                double totalQuantity = quantityPerDish * item.getQuantity();
-                
-                totalIngredientsNeeded.merge(ingredientId, totalQuantity, Double::sum);
+    // Writes one order inside the caller's transaction and returns its id, or -1 if the caller must roll
+    // back. Nothing is committed here, so OrderIngestionPipeline can put several orders in one transaction.
+    // The caller settles the deduction once it knows whether the transaction committed.
+    int insertOrder(Connection conn, Order order, StockDeduction deduction) throws SQLException {
+        // First insert the order to get the order ID
+        String query = """
+            INSERT INTO Orders (customer_id, order_type, order_status, total_amount, payment_status)
+            VALUES (?, ?, ?, ?, ?)
+        """;
+
+        int orderId;
+        try (PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, order.getCustomerId());
+            stmt.setString(2, order.getOrderType());
+            stmt.setString(3, order.getOrderStatus());
+            stmt.setDouble(4, order.getTotalAmount());
+            stmt.setString(5, order.getPaymentStatus());
+
+            int affectedRows = stmt.executeUpdate();
+            if (affectedRows == 0) {
+                return -1;
+            }
+
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    orderId = rs.getInt(1);
+                    order.setOrderId(orderId);
+                } else {
+                    return -1;
+                }
             }
         }
-        
-        // Check if we have enough of all ingredients
-        String checkQuery = "SELECT ingredient_id, quantity_in_stock FROM Ingredients WHERE ingredient_id = ? FOR UPDATE";
-        String updateQuery = "UPDATE Ingredients SET quantity_in_stock = quantity_in_stock - ? WHERE ingredient_id = ?";
-        String transactionQuery = """
-            INSERT INTO IngredientTransactions 
-            (ingredient_id, transaction_type, quantity_change, order_id, employee_id, notes)
-            VALUES (?, 'Usage', ?, ?, ?, ?)
-        """;
-        
-        for (Map.Entry<Integer, Double> entry : totalIngredientsNeeded.entrySet()) {
-            int ingredientId = entry.getKey();
-            double neededQuantity = entry.getValue();
-            
-            // Check current stock with lock
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkQuery)) {
-                checkStmt.setInt(1, ingredientId);
-                ResultSet rs = checkStmt.executeQuery();
-                
-                if (!rs.next() || rs.getDouble("quantity_in_stock") < neededQuantity) {
-                    return false;
+
+        // Now check and deduct ingredients with the valid order ID
+        if (!deductIngredients(conn, orderId, order.getItems(), order.getCartId(), deduction)) {
+            ErrorChannel.insufficientStock(
+                "Failed to place order. Please check ingredient availability.",
+                "Order Error");
+            return -1;
+        }
+        // The cart's holds became this deduction
+        if (order.getCartId() != null) {
+            reservationDAO.releaseHolds(conn, order.getCartId());
+        }
+
+        // Add order items
+        if (!addOrderItems(conn, orderId, order.getItems())) {
+            return -1;
+        }
+
+        // Assign employees
+        if (!assignEmployeesToOrder(conn, orderId, order.getAssignedEmployees())) {
+            return -1;
+        }
+
+        if (SalesRollupDAO.isCounted(order.getOrderStatus(), false)) {
+            salesRollupDAO.applyOrder(conn, orderId, 1);
+        }
+        return orderId;
+    }
+
+    // Records what was deducted in deduction, to publish once the order commits. Stock held for other
+    // carts is off limits; the order's own cart (if any) is not counted against it.
+    private boolean deductIngredients(Connection conn, int orderId, List<OrderItem> items, String cartId,
+                                      StockDeduction deduction) throws SQLException {
+        Map<Integer, Double> totalIngredientsNeeded = ingredientsNeeded(conn, items);
+        if (totalIngredientsNeeded.isEmpty()) {
+            return true;
+        }
+
+        List<Integer> ingredientIds = new ArrayList<>(totalIngredientsNeeded.keySet());
+        StockLedger ledger = StockLedger.getInstance();
+        if (ledger.isEnabled()) {
+            // Taken in memory; the flusher applies the Usage rows below to Ingredients later. No row locks
+            // here, so a hold committed while this order is in flight is not seen and both can pass for
+            // the last units; holdCart checks the ledger counters to keep that window short.
+            Map<Integer, Double> held = reservationDAO.getHeldByOthers(conn, ingredientIds, cartId, false);
+            if (!ledger.tryDeduct(conn, orderId, totalIngredientsNeeded, held)) {
+                return false;
+            }
+            deduction.ledgerOrderId = orderId;
+            deduction.fromLedger.putAll(totalIngredientsNeeded);
+            recordUsage(conn, orderId, totalIngredientsNeeded, true);
+            return true;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ingredientIds.size(), "?"));
+
+        // Lock every needed row in one statement, ascending by primary key
+        String lockQuery = """
+            SELECT ingredient_id, quantity_in_stock
+            FROM Ingredients
+            WHERE ingredient_id IN (%s)
+            ORDER BY ingredient_id
+            FOR UPDATE
+        """.formatted(placeholders);
+        Map<Integer, Double> stock = new HashMap<>();
+        try (PreparedStatement lockStmt = conn.prepareStatement(lockQuery)) {
+            bindIds(lockStmt, ingredientIds);
+            try (ResultSet rs = lockStmt.executeQuery()) {
+                while (rs.next()) {
+                    stock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
                 }
             }
-            
-            // Update stock
-            try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
-                updateStmt.setDouble(1, neededQuantity);
-                updateStmt.setInt(2, ingredientId);
-                updateStmt.executeUpdate();
+        }
+        // Holds are only added while these rows are locked (see StockReservationDAO). A locking read sees
+        // the latest committed holds rather than this transaction's snapshot, which an earlier plain read
+        // (a recipe lookup, or a previous order in the same group commit) may have fixed before a hold
+        // committed. Not so in ledger mode above, which takes no row locks.
+        Map<Integer, Double> held = reservationDAO.getHeldByOthers(conn, ingredientIds, cartId, true);
+        for (Map.Entry<Integer, Double> entry : totalIngredientsNeeded.entrySet()) {
+            Double available = stock.get(entry.getKey());
+            if (available == null
+                    || Math.round((available - held.getOrDefault(entry.getKey(), 0.0)) * 100) / 100.0 < entry.getValue()) {
+                return false;
             }
-            
-            // Record transaction
-            try (PreparedStatement transStmt = conn.prepareStatement(transactionQuery)) {
-                transStmt.setInt(1, ingredientId);
-                transStmt.setDouble(2, -neededQuantity); // Negative because it's a deduction
-                transStmt.setInt(3, orderId);
-                transStmt.setInt(4, 1); // Default to admin ID 1
-                transStmt.setString(5, "Ingredients used for order #" + orderId);
-                transStmt.executeUpdate();
+        }
+
+        // Decrement all rows at once. The WHERE guard re-checks stock per row, so if any row
+        // would go negative fewer rows change than expected and the caller rolls back.
+        StringBuilder amountCase = new StringBuilder("CASE ingredient_id");
+        for (int i = 0; i < ingredientIds.size(); i++) {
+            amountCase.append(" WHEN ? THEN ?");
+        }
+        amountCase.append(" END");
+        String updateQuery = """
+            UPDATE Ingredients
+            SET quantity_in_stock = quantity_in_stock - (%1$s)
+            WHERE ingredient_id IN (%2$s) AND quantity_in_stock >= (%1$s)
+        """.formatted(amountCase, placeholders);
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
+            int index = 1;
+            for (Map.Entry<Integer, Double> entry : totalIngredientsNeeded.entrySet()) {
+                updateStmt.setInt(index++, entry.getKey());
+                updateStmt.setDouble(index++, entry.getValue());
+            }
+            for (Integer ingredientId : ingredientIds) {
+                updateStmt.setInt(index++, ingredientId);
+            }
+            for (Map.Entry<Integer, Double> entry : totalIngredientsNeeded.entrySet()) {
+                updateStmt.setInt(index++, entry.getKey());
+                updateStmt.setDouble(index++, entry.getValue());
+            }
+            if (updateStmt.executeUpdate() != ingredientIds.size()) {
+                return false;
             }
         }
-        
+        // Keep batch stock in step with the aggregate, still under the Ingredients locks taken above
+        deduction.batchesAfter.putAll(batchDAO.consumeFirstExpiring(conn, totalIngredientsNeeded));
+        deduction.fromDatabase.putAll(totalIngredientsNeeded);
+
+        recordUsage(conn, orderId, totalIngredientsNeeded, false);
         return true;
     }
 
+    // Total of each ingredient the items use, keyed in ascending id order
+    static Map<Integer, Double> ingredientsNeeded(Connection conn, List<OrderItem> items) throws SQLException {
+        // Total each ingredient across the whole order. A TreeMap keeps ingredient ids ascending,
+        // which is the order rows get locked in, so concurrent orders cannot deadlock on them.
+        Map<Integer, Double> totalIngredientsNeeded = new TreeMap<>();
+        for (OrderItem item : items) {
+            // Recipes come from the shared cache; only a dish edited since it was loaded costs a query
+            RecipeCache.Recipe recipe = RecipeCache.getInstance().getRecipe(conn, item.getDishId());
+            for (int i = 0; i < recipe.size(); i++) {
+                double totalQuantity = recipe.getQuantity(i) * item.getQuantity();
+                totalIngredientsNeeded.merge(recipe.getIngredientId(i), totalQuantity, Double::sum);
+            }
+        }
+        // Stock is stored with two decimals; round so the checks compare like with like
+        totalIngredientsNeeded.replaceAll((id, quantity) -> Math.round(quantity * 100) / 100.0);
+        totalIngredientsNeeded.values().removeIf(quantity -> quantity <= 0);
+        return totalIngredientsNeeded;
+    }
+
+    // Records all Usage transactions with a single multi-row insert. Pending rows have not been
+    // subtracted from Ingredients yet; StockLedger does that when it flushes.
+    private void recordUsage(Connection conn, int orderId, Map<Integer, Double> quantities,
+                             boolean stockPending) throws SQLException {
+        String rowPlaceholders = String.join(", ",
+            Collections.nCopies(quantities.size(), "(?, 'Usage', ?, ?, ?, ?, ?)"));
+        String transactionQuery = """
+            INSERT INTO IngredientTransactions 
+            (ingredient_id, transaction_type, quantity_change, order_id, employee_id, notes, stock_pending)
+            VALUES %s
+        """.formatted(rowPlaceholders);
+        try (PreparedStatement transStmt = conn.prepareStatement(transactionQuery)) {
+            int index = 1;
+            for (Map.Entry<Integer, Double> entry : quantities.entrySet()) {
+                transStmt.setInt(index++, entry.getKey());
+                transStmt.setDouble(index++, -entry.getValue()); // Negative because it's a deduction
+                transStmt.setInt(index++, orderId);
+                transStmt.setInt(index++, 1); // Default to admin ID 1
+                transStmt.setString(index++, "Ingredients used for order #" + orderId);
+                transStmt.setBoolean(index++, stockPending);
+            }
+            transStmt.executeUpdate();
+        }
+    }
+
     private boolean addOrderItems(Connection conn, int orderId, List<OrderItem> items) throws SQLException {
-        String query = "INSERT INTO OrderItems (order_id, dish_id, quantity, price_at_time) VALUES (?, ?, ?, ?)";
+        // cost_at_time freezes the dish's cost as of now, so the sales rollup later subtracts exactly what it added
+        String query = """
+            INSERT INTO OrderItems (order_id, dish_id, quantity, price_at_time, cost_at_time)
+            SELECT ?, dish_id, ?, ?, selling_price
+            FROM Dishes
+            WHERE dish_id = ?
+        """;
         try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             for (OrderItem item : items) {
                 pstmt.setInt(1, orderId);
-                pstmt.setInt(2, item.getDishId());
-                pstmt.setInt(3, item.getQuantity());
-                pstmt.setDouble(4, item.getPriceAtTime());
+                pstmt.setInt(2, item.getQuantity());
+                pstmt.setDouble(3, item.getPriceAtTime());
+                pstmt.setInt(4, item.getDishId());
                 pstmt.addBatch();
             }
             int[] results = pstmt.executeBatch();
+            for (int result : results) {
+                if (result == 0) {
+                    return false; // Dish not found
+                }
+            }
             return results.length == items.size();
         }
     }
@@ -270,40 +495,115 @@ public class OrderDAO {
     }
 
     public boolean updateOrderStatus(int orderId, String status) {
-        String query = "UPDATE Orders SET order_status = ? WHERE order_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
-            pstmt.setString(1, status);
-            pstmt.setInt(2, orderId);
-            return pstmt.executeUpdate() > 0;
+        try {
+            return changeOrderState(orderId, status, null, false);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Cancels an order that has not been paid yet; a paid order is rejected
+    public boolean cancelUnpaidOrder(int orderId) {
+        try {
+            return changeOrderState(orderId, "Cancelled", null, true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Sets an order's status and/or deleted flag (null keeps the current value). Cancelling, deleting
+    // or restoring an order moves its lines out of or back into DailyDishSales in the same transaction.
+    private boolean changeOrderState(int orderId, String newStatus, Boolean newDeleted,
+                                     boolean unpaidOnly) throws SQLException {
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        try {
+            conn = getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            String status;
+            boolean deleted;
+            String lockQuery = "SELECT order_status, is_deleted, payment_status FROM Orders WHERE order_id = ? FOR UPDATE";
+            try (PreparedStatement lockStmt = conn.prepareStatement(lockQuery)) {
+                lockStmt.setInt(1, orderId);
+                try (ResultSet rs = lockStmt.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                    status = rs.getString("order_status");
+                    deleted = rs.getBoolean("is_deleted");
+                    if (unpaidOnly && "Paid".equals(rs.getString("payment_status"))) {
+                        conn.rollback();
+                        ErrorChannel.rejected(
+                            "Order #" + orderId + " has already been paid.",
+                            "Order Not Changed");
+                        return false;
+                    }
+                }
+            }
+
+            String targetStatus = newStatus != null ? newStatus : status;
+            boolean targetDeleted = newDeleted != null ? newDeleted : deleted;
+            String updateQuery = "UPDATE Orders SET order_status = ?, is_deleted = ? WHERE order_id = ?";
+            try (PreparedStatement updateStmt = conn.prepareStatement(updateQuery)) {
+                updateStmt.setString(1, targetStatus);
+                updateStmt.setBoolean(2, targetDeleted);
+                updateStmt.setInt(3, orderId);
+                updateStmt.executeUpdate();
+            }
+
+            boolean wasCounted = SalesRollupDAO.isCounted(status, deleted);
+            boolean isCounted = SalesRollupDAO.isCounted(targetStatus, targetDeleted);
+            if (wasCounted != isCounted) {
+                salesRollupDAO.applyOrder(conn, orderId, isCounted ? 1 : -1);
+            }
+
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(originalAutoCommit);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
     public List<Order> getOrdersByDateRange(String startDate, String endDate) {
         List<Order> orders = new ArrayList<>();
-        String query = "SELECT * FROM Orders WHERE DATE(order_datetime) BETWEEN ? AND ? ORDER BY order_datetime DESC";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        String query = """
+            SELECT o.*, c.first_name, c.last_name
+            FROM Orders o
+            JOIN Customers c ON o.customer_id = c.customer_id
+            WHERE DATE(o.order_datetime) BETWEEN ? AND ?
+            ORDER BY o.order_datetime DESC
+        """;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, startDate);
             pstmt.setString(2, endDate);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Order order = new Order(
-                        rs.getInt("order_id"),
-                        rs.getInt("customer_id"),
-                        rs.getTimestamp("order_datetime"),
-                        rs.getString("order_type"),
-                        rs.getString("order_status"),
-                        rs.getString("payment_status"),
-                        rs.getDouble("total_amount"),
-                        rs.getString("payment_method")
-                    );
-                    order.setItems(getOrderItems(order.getOrderId()));
-                    order.setAssignedEmployees(getAssignedEmployees(order.getOrderId()));
-                    orders.add(order);
+                    orders.add(mapResultSetToOrder(rs));
                 }
             }
+            loadOrderDetails(conn, orders);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -318,7 +618,8 @@ public class OrderDAO {
             JOIN Dishes d ON oi.dish_id = d.dish_id 
             WHERE oi.order_id = ?
         """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, orderId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -334,36 +635,32 @@ public class OrderDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Error fetching order items: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return items;
     }
 
     public List<Order> getOrdersByCustomerId(int customerId) {
         List<Order> orders = new ArrayList<>();
-        String query = "SELECT * FROM Orders WHERE customer_id = ? ORDER BY order_datetime DESC";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        String query = """
+            SELECT o.*, c.first_name, c.last_name
+            FROM Orders o
+            JOIN Customers c ON o.customer_id = c.customer_id
+            WHERE o.customer_id = ?
+            ORDER BY o.order_datetime DESC
+        """;
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, customerId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Order order = new Order(
-                        rs.getInt("order_id"),
-                        rs.getInt("customer_id"),
-                        rs.getTimestamp("order_datetime"),
-                        rs.getString("order_type"),
-                        rs.getString("order_status"),
-                        rs.getString("payment_status"),
-                        rs.getDouble("total_amount"),
-                        rs.getString("payment_method")
-                    );
-                    order.setItems(getOrderItems(order.getOrderId()));
-                    order.setAssignedEmployees(getAssignedEmployees(order.getOrderId()));
-                    orders.add(order);
+                    orders.add(mapResultSetToOrder(rs));
                 }
             }
+            loadOrderDetails(conn, orders);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -380,10 +677,8 @@ public class OrderDAO {
     }
 
     public boolean deleteOrder(int orderId) {
-        String updateQuery = "UPDATE Orders SET is_deleted = TRUE WHERE order_id = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(updateQuery)) {
-            stmt.setInt(1, orderId);
-            return stmt.executeUpdate() > 0;
+        try {
+            return changeOrderState(orderId, null, true, false);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -417,29 +712,64 @@ public class OrderDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch deleted orders: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return orders;
     }
 
     public boolean restoreOrder(int orderId) {
-        String query = "UPDATE Orders SET is_deleted = FALSE WHERE order_id = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-            
-            stmt.setInt(1, orderId);
-            return stmt.executeUpdate() > 0;
+        try {
+            return changeOrderState(orderId, null, false, false);
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to restore order: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
-} 
+
+    // Stock an order took: published to DishAvailability once its transaction commits, or handed back
+    // to StockLedger if it rolls back
+    static class StockDeduction {
+        // Quantities decremented in the database
+        private final Map<Integer, Double> fromDatabase = new HashMap<>();
+        // Quantities taken from StockLedger instead, and the order they are in flight for there
+        private final Map<Integer, Double> fromLedger = new HashMap<>();
+        private int ledgerOrderId = 0;
+        // Remaining quantity of every batch the order drew from
+        private final Map<Integer, Double> batchesAfter = new HashMap<>();
+
+        void committed() {
+            if (ledgerOrderId != 0) {
+                StockLedger.getInstance().committed(ledgerOrderId);
+            }
+            try {
+                ExpiringBatchIndex.getInstance().batchesConsumed(batchesAfter);
+                // Relative changes, so orders committing concurrently can publish in any order
+                Map<Integer, Double> changes = new HashMap<>();
+                fromDatabase.forEach((ingredientId, quantity) -> changes.put(ingredientId, -quantity));
+                fromLedger.forEach((ingredientId, quantity) -> changes.merge(ingredientId, -quantity, Double::sum));
+                DishAvailability.getInstance().stockAdjusted(changes);
+                LowStockWatch.getInstance().stockAdjusted(changes);
+            } catch (RuntimeException e) {
+                // The order is placed whatever a listener does; don't let one turn it into a failure
+                e.printStackTrace();
+            }
+        }
+
+        void rolledBack() {
+            if (ledgerOrderId != 0) {
+                StockLedger.getInstance().release(ledgerOrderId);
+                ledgerOrderId = 0;
+            }
+            fromLedger.clear();
+            fromDatabase.clear();
+            batchesAfter.clear();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package dao;
+
+import model.Order;
+import util.DataAccessError;
+import util.DatabaseConnection;
+import util.ErrorChannel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Group commit for order placement. Orders submitted from many terminals are queued; a single writer
+// thread takes whatever arrives within maxDelayMillis of the first one (up to maxBatchSize) and writes
+// them in one transaction, so a burst pays for one commit instead of one per order. Each order runs
+// under its own savepoint: one that fails its stock check is rolled back alone and the rest still commit.
+public class OrderIngestionPipeline {
+    private final OrderDAO orderDAO;
+    private final long maxDelayNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public OrderIngestionPipeline(OrderDAO orderDAO, long maxDelayMillis, int maxBatchSize) {
+        if (maxDelayMillis < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxDelayMillis must be >= 0 and maxBatchSize >= 1");
+        }
+        this.orderDAO = orderDAO;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::writeLoop, "order-ingestion");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Completes with the new order id, or -1 if the order was not placed (see getError on the result)
+    public CompletableFuture<Result> submit(Order order) {
+        Submission submission = new Submission(order);
+        synchronized (this) {
+            // Checked and queued under the lock, so close() never misses a submission
+            if (running) {
+                queue.add(submission);
+                return submission.future;
+            }
+        }
+        // Shut down: place it directly so no caller is left waiting
+        submission.complete(orderDAO.createOrder(order), ErrorChannel.takeLastError());
+        return submission.future;
+    }
+
+    // Blocking form with OrderDAO.createOrder semantics, including ErrorChannel.takeLastError() on failure
+    public int createOrder(Order order) {
+        Result result = submit(order).join();
+        ErrorChannel.restore(result.getError());
+        return result.getOrderId();
+    }
+
+    // Writes whatever is already queued, then stops the writer thread
+    public void close() {
+        synchronized (this) {
+            running = false;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<Submission> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Submission next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                // Nothing in the batch has been written yet
+                failUnwritten(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                for (Submission submission : batch) {
+                    if (!submission.future.isDone()) {
+                        submission.future.completeExceptionally(e);
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Stops taking orders and fails the batch being gathered plus everything still queued, so no caller
+    // waits on an order that will never be written
+    private void failUnwritten(List<Submission> batch) {
+        synchronized (this) {
+            running = false;
+        }
+        List<Submission> unwritten = new ArrayList<>(batch);
+        queue.drainTo(unwritten);
+        for (Submission submission : unwritten) {
+            ErrorChannel.databaseError(
+                "The order was not placed because order processing was stopped.",
+                "Order Not Placed",
+                null);
+            submission.complete(-1, ErrorChannel.takeLastError());
+        }
+    }
+
+    private void writeBatch(List<Submission> batch) {
+        if (batch.size() == 1) {
+            // Nothing to share the commit with
+            Submission only = batch.get(0);
+            only.complete(orderDAO.createOrder(only.order), ErrorChannel.takeLastError());
+            return;
+        }
+
+        ErrorChannel.takeLastError();
+        List<OrderDAO.StockDeduction> deductions = new ArrayList<>();
+        boolean committed = false;
+        // If the shared transaction fails, every order is retried below and reports its own errors then;
+        // until we know, the first pass's errors are only collected
+        ErrorChannel.holdNotifications();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (Submission submission : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    OrderDAO.StockDeduction deduction = new OrderDAO.StockDeduction();
+                    int orderId;
+                    try {
+                        orderId = orderDAO.insertOrder(conn, submission.order, deduction);
+                    } catch (SQLException e) {
+                        e.printStackTrace();
+                        ErrorChannel.databaseError(
+                            "Failed to create order: " + e.getMessage(),
+                            "Database Error",
+                            e);
+                        orderId = -1;
+                    }
+                    if (orderId < 0) {
+                        // Throws if the server already rolled back the whole transaction (e.g. a deadlock),
+                        // which sends the batch down the one-order-at-a-time path below
+                        deduction.rolledBack();
+                        conn.rollback(savepoint);
+                        submission.error = ErrorChannel.takeLastError();
+                        submission.order.setOrderId(0);
+                        continue;
+                    }
+                    conn.releaseSavepoint(savepoint);
+                    deductions.add(deduction);
+                    submission.orderId = orderId;
+                }
+                conn.commit();
+                committed = true;
+            } finally {
+                if (!committed) {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(originalAutoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            ErrorChannel.releaseNotifications();
+        }
+
+        if (!committed) {
+            // The shared transaction is gone; give every order its own, as if there were no pipeline
+            for (OrderDAO.StockDeduction deduction : deductions) {
+                deduction.rolledBack();
+            }
+            ErrorChannel.takeLastError();
+            for (Submission submission : batch) {
+                submission.complete(orderDAO.createOrder(submission.order), ErrorChannel.takeLastError());
+            }
+            return;
+        }
+        for (Submission submission : batch) {
+            if (submission.error != null) {
+                ErrorChannel.report(submission.error);
+                ErrorChannel.takeLastError();
+            }
+        }
+        for (OrderDAO.StockDeduction deduction : deductions) {
+            deduction.committed();
+        }
+        for (Submission submission : batch) {
+            submission.complete(submission.orderId, submission.error);
+        }
+    }
+
+    public static class Result {
+        private final int orderId;
+        private final DataAccessError error;
+
+        Result(int orderId, DataAccessError error) {
+            this.orderId = orderId;
+            this.error = error;
+        }
+
+        public int getOrderId() { return orderId; }
+        public boolean isPlaced() { return orderId > 0; }
+        // Why the order was not placed, or null
+        public DataAccessError getError() { return error; }
+    }
+
+    private static class Submission {
+        private final Order order;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private int orderId = -1;
+        private DataAccessError error;
+
+        Submission(Order order) {
+            this.order = order;
+        }
+
+        void complete(int orderId, DataAccessError error) {
+            future.complete(new Result(orderId, orderId > 0 ? null : error));
+        }
+    }
+}
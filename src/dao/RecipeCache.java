@@ -0,0 +1,185 @@
+package dao;
+
+import util.DatabaseConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide cache of DishIngredients. Recipes are loaded in bulk once and then served from memory;
+// RestaurantController invalidates a dish whenever it is added, updated or deleted.
+public class RecipeCache {
+    private static final RecipeCache INSTANCE = new RecipeCache();
+
+    private final Map<Integer, Recipe> recipes = new ConcurrentHashMap<>();
+    // Bumped on every invalidation. A load only installs its result if the version is unchanged,
+    // so a slow read that raced an edit can never put the old recipe back.
+    private long version = 0;
+    private boolean fullyLoaded = false;
+
+    private RecipeCache() {
+    }
+
+    public static RecipeCache getInstance() {
+        return INSTANCE;
+    }
+
+    public Recipe getRecipe(int dishId) throws SQLException {
+        Recipe recipe = recipes.get(dishId);
+        if (recipe != null) {
+            return recipe;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return getRecipe(conn, dishId);
+        }
+    }
+
+    // Same as getRecipe(int), but a cache miss is read on the caller's connection (e.g. inside its transaction)
+    public Recipe getRecipe(Connection conn, int dishId) throws SQLException {
+        Recipe recipe = recipes.get(dishId);
+        if (recipe != null) {
+            return recipe;
+        }
+        if (!isFullyLoaded()) {
+            loadAll(conn);
+            recipe = recipes.get(dishId);
+            if (recipe != null) {
+                return recipe;
+            }
+        }
+        return loadDish(conn, dishId);
+    }
+
+    public Map<Integer, Double> getDishIngredients(int dishId) throws SQLException {
+        return getRecipe(dishId).toMap();
+    }
+
+    public void loadAll() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            loadAll(conn);
+        }
+    }
+
+    public void loadAll(Connection conn) throws SQLException {
+        long startVersion = getVersion();
+        String query = """
+            SELECT dish_id, ingredient_id, quantity_needed
+            FROM DishIngredients
+            ORDER BY dish_id, ingredient_id
+        """;
+
+        Map<Integer, List<double[]>> rowsByDish = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                rowsByDish.computeIfAbsent(rs.getInt("dish_id"), id -> new ArrayList<>())
+                    .add(new double[] {rs.getInt("ingredient_id"), rs.getDouble("quantity_needed")});
+            }
+        }
+
+        Map<Integer, Recipe> loaded = new HashMap<>();
+        for (Map.Entry<Integer, List<double[]>> entry : rowsByDish.entrySet()) {
+            loaded.put(entry.getKey(), Recipe.fromRows(entry.getValue()));
+        }
+
+        synchronized (this) {
+            if (version == startVersion) {
+                recipes.clear();
+                recipes.putAll(loaded);
+                fullyLoaded = true;
+            }
+        }
+    }
+
+    private Recipe loadDish(Connection conn, int dishId) throws SQLException {
+        long startVersion = getVersion();
+        String query = """
+            SELECT ingredient_id, quantity_needed
+            FROM DishIngredients
+            WHERE dish_id = ?
+            ORDER BY ingredient_id
+        """;
+
+        List<double[]> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, dishId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new double[] {rs.getInt("ingredient_id"), rs.getDouble("quantity_needed")});
+                }
+            }
+        }
+
+        // Dishes without ingredients are cached too, as empty recipes
+        Recipe recipe = Recipe.fromRows(rows);
+        synchronized (this) {
+            if (version == startVersion) {
+                recipes.put(dishId, recipe);
+            }
+        }
+        return recipe;
+    }
+
+    public synchronized void invalidate(int dishId) {
+        version++;
+        recipes.remove(dishId);
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        recipes.clear();
+        fullyLoaded = false;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private synchronized boolean isFullyLoaded() {
+        return fullyLoaded;
+    }
+
+    // Immutable recipe stored as parallel arrays, sorted by ingredient id
+    public static final class Recipe {
+        private final int[] ingredientIds;
+        private final double[] quantities;
+
+        private Recipe(int[] ingredientIds, double[] quantities) {
+            this.ingredientIds = ingredientIds;
+            this.quantities = quantities;
+        }
+
+        private static Recipe fromRows(List<double[]> rows) {
+            int[] ids = new int[rows.size()];
+            double[] amounts = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                ids[i] = (int) rows.get(i)[0];
+                amounts[i] = rows.get(i)[1];
+            }
+            return new Recipe(ids, amounts);
+        }
+
+        public int size() {
+            return ingredientIds.length;
+        }
+
+        public int getIngredientId(int index) {
+            return ingredientIds[index];
+        }
+
+        public double getQuantity(int index) {
+            return quantities[index];
+        }
+
+        public Map<Integer, Double> toMap() {
+            Map<Integer, Double> map = new HashMap<>();
+            for (int i = 0; i < ingredientIds.length; i++) {
+                map.put(ingredientIds[i], quantities[i]);
+            }
+            return map;
+        }
+    }
+}
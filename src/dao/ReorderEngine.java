@@ -0,0 +1,291 @@
+package dao;
+
+import model.ReorderSuggestion;
+import util.DatabaseConnection;
+import util.ErrorChannel;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reorder points and purchase quantities from how fast each ingredient is actually used. Usage is modelled
+// per hour of the week (168 slots, so a busy Friday lunch is not averaged with a quiet Monday morning): each
+// slot keeps an exponentially weighted mean and variance of the usage seen in that hour, one observation per
+// week. Hours with no Usage rows count as zero.
+//
+// The slots live in memory together with a watermark; a run only reads Usage rows recorded since the last
+// one, already summed per ingredient and hour by the database. The first run reads HISTORY_WEEKS of history.
+public class ReorderEngine {
+    private static final ReorderEngine INSTANCE = new ReorderEngine();
+
+    private static final int SLOTS_PER_WEEK = 7 * 24;
+    // Weight of the newest week; older weeks fade by (1 - ALPHA) per week
+    private static final double ALPHA = 0.2;
+    // 0.8^26 is under 0.3%, so older history would barely move the averages
+    private static final int HISTORY_WEEKS = 26;
+    // About a 95% chance of not running out before a delivery arrives
+    private static final double SERVICE_FACTOR = 1.65;
+    // Days of usage an order should cover once it arrives
+    private static final int COVER_DAYS = 7;
+    private static final int DEFAULT_LEAD_TIME_DAYS = 1;
+    // Any Monday; hour indexes count from its midnight so that index % SLOTS_PER_WEEK is the hour of the week
+    private static final LocalDateTime EPOCH_MONDAY = LocalDate.of(1970, 1, 5).atStartOfDay();
+
+    private final Map<Integer, UsageProfile> profiles = new HashMap<>();
+    // Usage before this hour has been folded into the profiles
+    private LocalDateTime processedUntil;
+
+    private ReorderEngine() {
+    }
+
+    public static ReorderEngine getInstance() {
+        return INSTANCE;
+    }
+
+    // One suggestion per active ingredient, sorted with what needs ordering first
+    public List<ReorderSuggestion> getSuggestions() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return computeSuggestions(conn);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            ErrorChannel.databaseError(
+                "Failed to compute reorder suggestions: " + e.getMessage(),
+                "Database Error",
+                e);
+            return new ArrayList<>();
+        }
+    }
+
+    public synchronized List<ReorderSuggestion> computeSuggestions(Connection conn) throws SQLException {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        // Only whole hours, so each slot gets exactly one observation per week
+        readUsage(conn, currentHour);
+        // Forecasts start at the current hour, the first one not yet folded in
+        long watermark = hourIndex(currentHour);
+
+        Map<Integer, SupplierTerms> terms = loadSupplierTerms(conn);
+        List<ReorderSuggestion> suggestions = new ArrayList<>();
+        String query = """
+            SELECT i.ingredient_id, i.name, u.unit_name, %s AS quantity_in_stock, i.minimum_stock_level
+            FROM Ingredients i
+            JOIN Units u ON i.unit_id = u.unit_id
+            WHERE i.is_deleted = FALSE
+        """.formatted(DishAvailability.STOCK_COLUMN);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                int ingredientId = rs.getInt("ingredient_id");
+                double stock = rs.getDouble("quantity_in_stock");
+                double minimum = rs.getDouble("minimum_stock_level");
+                SupplierTerms supplier = terms.get(ingredientId);
+                int leadTimeDays = supplier != null && supplier.leadTimeDays > 0 ? supplier.leadTimeDays : DEFAULT_LEAD_TIME_DAYS;
+
+                UsageProfile profile = profiles.get(ingredientId);
+                double weekUsage = 0;
+                double leadUsage = 0;
+                double leadVariance = 0;
+                double coverUsage = 0;
+                if (profile != null) {
+                    profile.catchUp(watermark);
+                    double[] forecast = profile.forecast(watermark);
+                    double[] variance = profile.variance;
+                    for (int slot = 0; slot < SLOTS_PER_WEEK; slot++) {
+                        weekUsage += forecast[slot];
+                    }
+                    int leadHours = leadTimeDays * 24;
+                    for (int i = 0; i < leadHours % SLOTS_PER_WEEK; i++) {
+                        int slot = (int) ((watermark + i) % SLOTS_PER_WEEK);
+                        leadUsage += forecast[slot];
+                        leadVariance += variance[slot];
+                    }
+                    double weekVariance = 0;
+                    for (double slotVariance : variance) {
+                        weekVariance += slotVariance;
+                    }
+                    leadUsage += (leadHours / SLOTS_PER_WEEK) * weekUsage;
+                    leadVariance += (leadHours / SLOTS_PER_WEEK) * weekVariance;
+                    for (int i = 0; i < COVER_DAYS * 24; i++) {
+                        coverUsage += forecast[(int) ((watermark + leadHours + i) % SLOTS_PER_WEEK)];
+                    }
+                }
+
+                // The minimum level set by staff is still the floor
+                double reorderPoint = round(Math.max(leadUsage + SERVICE_FACTOR * Math.sqrt(leadVariance), minimum));
+                double suggested = 0;
+                if (stock <= reorderPoint) {
+                    // Enough to cover the week after delivery, and never less than Ingredient.getReorderQuantity
+                    double target = Math.max(reorderPoint + coverUsage, minimum * 2);
+                    suggested = Math.max(target - stock, 0);
+                    if (supplier != null) {
+                        suggested = Math.max(suggested, supplier.minimumOrderQuantity);
+                    }
+                    suggested = Math.ceil(suggested * 100 - 1e-9) / 100.0;
+                }
+                suggestions.add(new ReorderSuggestion(ingredientId, rs.getString("name"), rs.getString("unit_name"),
+                    stock, round(weekUsage / 7), supplier != null ? supplier.supplierId : 0,
+                    supplier != null ? supplier.supplierName : null, leadTimeDays,
+                    supplier != null ? supplier.unitPrice : 0, reorderPoint, suggested));
+            }
+        }
+        suggestions.sort((a, b) -> {
+            if (a.isReorderNeeded() != b.isReorderNeeded()) {
+                return a.isReorderNeeded() ? -1 : 1;
+            }
+            return a.getIngredientName().compareToIgnoreCase(b.getIngredientName());
+        });
+        return suggestions;
+    }
+
+    // Folds Usage from processedUntil up to (not including) until into the profiles, in time order
+    private void readUsage(Connection conn, LocalDateTime until) throws SQLException {
+        LocalDateTime from = processedUntil != null ? processedUntil : until.minusWeeks(HISTORY_WEEKS);
+        if (!from.isBefore(until)) {
+            return;
+        }
+        // A Usage row committed just after its hour was processed is missed; orders commit within
+        // milliseconds of their timestamp, so that only happens right at the turn of the hour
+        String query = """
+            SELECT ingredient_id, DATE(transaction_date) AS usage_date, HOUR(transaction_date) AS usage_hour,
+                   -SUM(quantity_change) AS used
+            FROM IngredientTransactions
+            WHERE transaction_type = 'Usage' AND transaction_date >= ? AND transaction_date < ?
+            GROUP BY ingredient_id, DATE(transaction_date), HOUR(transaction_date)
+            ORDER BY usage_date, usage_hour
+        """;
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(from));
+            stmt.setTimestamp(2, Timestamp.valueOf(until));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long hour = hourIndex(rs.getDate("usage_date").toLocalDate().atTime(rs.getInt("usage_hour"), 0));
+                    profiles.computeIfAbsent(rs.getInt("ingredient_id"), id -> new UsageProfile(hour / SLOTS_PER_WEEK))
+                        .observe(hour, rs.getDouble("used"));
+                }
+            }
+        }
+        processedUntil = until;
+    }
+
+    // Primary supplier if there is one, otherwise the cheapest; inactive and deleted suppliers are skipped
+    private Map<Integer, SupplierTerms> loadSupplierTerms(Connection conn) throws SQLException {
+        Map<Integer, SupplierTerms> terms = new HashMap<>();
+        String query = """
+            SELECT ins.ingredient_id, ins.supplier_id, s.name, ins.unit_price, ins.lead_time_days,
+                   ins.minimum_order_quantity, ins.is_primary_supplier
+            FROM IngredientSuppliers ins
+            JOIN Suppliers s ON ins.supplier_id = s.supplier_id
+            WHERE s.is_deleted = FALSE AND s.status = 'Active'
+        """;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                SupplierTerms candidate = new SupplierTerms(rs.getInt("supplier_id"), rs.getString("name"),
+                    rs.getDouble("unit_price"), rs.getInt("lead_time_days"), rs.getDouble("minimum_order_quantity"),
+                    rs.getBoolean("is_primary_supplier"));
+                terms.merge(rs.getInt("ingredient_id"), candidate, (current, other) -> {
+                    if (current.primary != other.primary) {
+                        return current.primary ? current : other;
+                    }
+                    return other.unitPrice < current.unitPrice ? other : current;
+                });
+            }
+        }
+        return terms;
+    }
+
+    private static long hourIndex(LocalDateTime time) {
+        return ChronoUnit.HOURS.between(EPOCH_MONDAY, time);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static class UsageProfile {
+        // Week of the first usage seen; the averages start from zero there
+        private final long firstWeek;
+        private final double[] mean = new double[SLOTS_PER_WEEK];
+        private final double[] variance = new double[SLOTS_PER_WEEK];
+        // Last week folded into each slot
+        private final long[] lastWeek = new long[SLOTS_PER_WEEK];
+
+        UsageProfile(long firstWeek) {
+            this.firstWeek = firstWeek;
+            Arrays.fill(lastWeek, firstWeek - 1);
+        }
+
+        void observe(long hour, double used) {
+            int slot = (int) (hour % SLOTS_PER_WEEK);
+            long week = hour / SLOTS_PER_WEEK;
+            advance(slot, week - 1);
+            update(slot, used);
+            lastWeek[slot] = week;
+        }
+
+        // Records zero usage for every week of every slot that has passed before the watermark hour
+        void catchUp(long watermark) {
+            for (int slot = 0; slot < SLOTS_PER_WEEK; slot++) {
+                advance(slot, lastCompletedWeek(slot, watermark));
+            }
+        }
+
+        // Means corrected for having started from zero, which would otherwise understate new ingredients
+        double[] forecast(long watermark) {
+            double[] forecast = new double[SLOTS_PER_WEEK];
+            for (int slot = 0; slot < SLOTS_PER_WEEK; slot++) {
+                long weeks = lastCompletedWeek(slot, watermark) - firstWeek + 1;
+                double weight = weeks > 0 ? 1 - Math.pow(1 - ALPHA, weeks) : 0;
+                forecast[slot] = weight > 0 ? mean[slot] / weight : 0;
+            }
+            return forecast;
+        }
+
+        private void advance(int slot, long toWeek) {
+            long missed = toWeek - lastWeek[slot];
+            if (missed <= 0) {
+                return;
+            }
+            // After this many empty weeks both averages are effectively zero
+            for (long i = 0; i < Math.min(missed, 200); i++) {
+                update(slot, 0);
+            }
+            lastWeek[slot] = toWeek;
+        }
+
+        private void update(int slot, double used) {
+            double diff = used - mean[slot];
+            double increment = ALPHA * diff;
+            mean[slot] += increment;
+            variance[slot] = (1 - ALPHA) * (variance[slot] + diff * increment);
+        }
+
+        private static long lastCompletedWeek(int slot, long watermark) {
+            long week = watermark / SLOTS_PER_WEEK;
+            return slot < watermark % SLOTS_PER_WEEK ? week : week - 1;
+        }
+    }
+
+    private static class SupplierTerms {
+        private final int supplierId;
+        private final String supplierName;
+        private final double unitPrice;
+        private final int leadTimeDays;
+        private final double minimumOrderQuantity;
+        private final boolean primary;
+
+        SupplierTerms(int supplierId, String supplierName, double unitPrice, int leadTimeDays,
+                      double minimumOrderQuantity, boolean primary) {
+            this.supplierId = supplierId;
+            this.supplierName = supplierName;
+            this.unitPrice = unitPrice;
+            this.leadTimeDays = leadTimeDays;
+            this.minimumOrderQuantity = minimumOrderQuantity;
+            this.primary = primary;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package dao;
+
+import util.DatabaseConnection;
+import util.ErrorChannel;
+import java.sql.*;
+
+// Maintains DailyDishSales, the per-day, per-dish sales totals the sales and profit reports read.
+// An order counts towards the rollup while it is neither cancelled nor deleted; every change to that
+// is applied on the caller's connection so it commits or rolls back together with the order itself.
+// Cost comes from OrderItems.cost_at_time, fixed when the order was placed, so removing an order takes
+// out exactly what adding it put in even if the dish's price has changed since.
+public class SalesRollupDAO {
+    private static final String ORDER_TOTALS = """
+        SELECT DATE(o.order_datetime) AS sales_date,
+               oi.dish_id,
+               COUNT(*) AS order_lines,
+               SUM(oi.quantity) AS quantity_sold,
+               SUM(oi.quantity * oi.price_at_time) AS revenue,
+               SUM(oi.quantity * oi.cost_at_time) AS cost
+        FROM Orders o
+        JOIN OrderItems oi ON o.order_id = oi.order_id
+        WHERE %s
+        GROUP BY DATE(o.order_datetime), oi.dish_id
+    """;
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getConnection();
+    }
+
+    public static boolean isCounted(String orderStatus, boolean deleted) {
+        return !deleted && !"Cancelled".equals(orderStatus);
+    }
+
+    // Adds (sign = 1) or removes (sign = -1) one order's lines
+    public void applyOrder(Connection conn, int orderId, int sign) throws SQLException {
+        String query = """
+            INSERT INTO DailyDishSales (sales_date, dish_id, order_lines, quantity_sold, revenue, cost)
+            SELECT t.sales_date, t.dish_id, ? * t.order_lines, ? * t.quantity_sold, ? * t.revenue, ? * t.cost
+            FROM (%s) t
+            ON DUPLICATE KEY UPDATE
+                order_lines = DailyDishSales.order_lines + VALUES(order_lines),
+                quantity_sold = DailyDishSales.quantity_sold + VALUES(quantity_sold),
+                revenue = DailyDishSales.revenue + VALUES(revenue),
+                cost = DailyDishSales.cost + VALUES(cost)
+        """.formatted(ORDER_TOTALS.formatted("o.order_id = ?"));
+
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, sign);
+            stmt.setInt(2, sign);
+            stmt.setInt(3, sign);
+            stmt.setInt(4, sign);
+            stmt.setInt(5, orderId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Recomputes the whole rollup on the caller's connection, e.g. after a bulk load
+    public void rebuild(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM DailyDishSales");
+            stmt.executeUpdate("""
+                INSERT INTO DailyDishSales (sales_date, dish_id, order_lines, quantity_sold, revenue, cost)
+                %s
+            """.formatted(ORDER_TOTALS.formatted(
+                "o.is_deleted = FALSE AND o.order_status <> 'Cancelled'")));
+        }
+    }
+
+    // Recomputes the whole rollup from OrderItems, for backfilling or repairing it
+    public boolean rebuild() {
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        try {
+            conn = getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            rebuild(conn);
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            e.printStackTrace();
+            ErrorChannel.databaseError(
+                "Failed to rebuild sales summary: " + e.getMessage(),
+                "Database Error",
+                e);
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(originalAutoCommit);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
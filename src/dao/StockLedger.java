@@ -0,0 +1,461 @@
+package dao;
+
+import util.DatabaseConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Optional in-process copy of Ingredients.quantity_in_stock, so placing an order no longer locks the rows of
+// ingredients that nearly every recipe uses. Stock is held in hundredths (the column has two decimals) in
+// atomic counters. An order takes what it needs by compare-and-set and never goes below zero.
+//
+// The order's Usage rows are still written in the order's own transaction, marked stock_pending. A background
+// flusher later subtracts pending rows from Ingredients and clears the mark, both in one transaction. A crash
+// therefore loses nothing: applyPending runs at every startup and finishes what the last flush did not.
+// While the ledger is on, quantity_in_stock read straight from the table lags by up to one flush interval.
+//
+// Orders whose transaction is still open are tracked per order until they commit or roll back. Re-reading an
+// ingredient (refreshIngredients) subtracts what those orders took and the database cannot see yet, so it
+// neither drops their deductions nor lets a later rollback credit the stock twice.
+public class StockLedger {
+    private static final StockLedger INSTANCE = new StockLedger();
+
+    private static final long FLUSH_INTERVAL_MILLIS = 200;
+    // Pending rows applied per flush transaction; also bounds the IN (...) lists below
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final Map<Integer, AtomicLong> stock = new ConcurrentHashMap<>();
+    // Order id -> hundredths taken per ingredient, for orders not yet committed or rolled back
+    private final Map<Integer, Map<Integer, Long>> inFlight = new ConcurrentHashMap<>();
+    // Deductions and releases share the read side; a re-read takes the write side so no counter moves
+    // between reading the database and setting it
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+    private final IngredientBatchDAO batchDAO = new IngredientBatchDAO();
+    private volatile boolean enabled = false;
+    private ScheduledExecutorService flusher;
+
+    private StockLedger() {
+    }
+
+    public static StockLedger getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void enable() throws SQLException {
+        if (enabled) {
+            return;
+        }
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            applyPending(conn);
+            stock.clear();
+            inFlight.clear();
+            load(conn, null, true);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "stock-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+            FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        enabled = true;
+    }
+
+    // Stops taking stock in memory and writes everything still pending. Usage from orders that were
+    // mid-transaction at this point stays pending until the next flush or startup.
+    public synchronized void disable() {
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flusher = null;
+        flushQuietly();
+        stock.clear();
+        inFlight.clear();
+    }
+
+    // Takes every quantity in needed (ingredient id -> amount) or none of them, leaving at least floors
+    // (e.g. stock held for other carts) behind. Ingredients are taken in ascending id order; if one falls
+    // short, the ones already taken are put back. A concurrent order can briefly see that stock as gone
+    // and be turned away, but stock never goes negative. What is taken stays in flight for orderId until
+    // committed or released is called for it.
+    boolean tryDeduct(Connection conn, int orderId, Map<Integer, Double> needed,
+                      Map<Integer, Double> floors) throws SQLException {
+        List<Integer> missing = new ArrayList<>();
+        for (Integer ingredientId : needed.keySet()) {
+            if (!stock.containsKey(ingredientId)) {
+                missing.add(ingredientId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Added since the ledger was loaded
+            load(conn, missing, false);
+        }
+
+        reloadLock.readLock().lock();
+        try {
+            Map<Integer, Long> taken = new TreeMap<>();
+            for (Map.Entry<Integer, Double> entry : new TreeMap<>(needed).entrySet()) {
+                AtomicLong counter = stock.get(entry.getKey());
+                long amount = toHundredths(entry.getValue());
+                long floor = toHundredths(floors.getOrDefault(entry.getKey(), 0.0));
+                if (counter == null || !take(counter, amount, floor)) {
+                    putBack(taken);
+                    return false;
+                }
+                taken.put(entry.getKey(), amount);
+            }
+            inFlight.put(orderId, taken);
+            return true;
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    private static boolean take(AtomicLong counter, long amount, long floor) {
+        while (true) {
+            long current = counter.get();
+            if (current - amount < floor) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    // Current counters of the given ingredients that the ledger has loaded, net of in-flight orders
+    Map<Integer, Double> getStock(Collection<Integer> ingredientIds) {
+        Map<Integer, Double> current = new HashMap<>();
+        for (Integer ingredientId : ingredientIds) {
+            AtomicLong counter = stock.get(ingredientId);
+            if (counter != null) {
+                current.put(ingredientId, counter.get() / 100.0);
+            }
+        }
+        return current;
+    }
+
+    // Work done in the caller's transaction with the stock taken by withWasteTaken; must commit before returning
+    interface WasteWork<T> {
+        T run(Map<Integer, Double> taken) throws SQLException;
+    }
+
+    // Takes up to the given quantities (e.g. expired stock written straight to Ingredients), as much as each
+    // counter has, and hands what was taken to work, which removes exactly that from the table and commits.
+    // Re-reads are held off until work is done; if it throws, the stock is put back. With the ledger off,
+    // work gets the quantities unchanged.
+    <T> T withWasteTaken(Map<Integer, Double> wanted, WasteWork<T> work) throws SQLException {
+        reloadLock.readLock().lock();
+        Map<Integer, Double> taken = new TreeMap<>();
+        boolean done = false;
+        try {
+            for (Map.Entry<Integer, Double> entry : wanted.entrySet()) {
+                AtomicLong counter = stock.get(entry.getKey());
+                if (!enabled || counter == null) {
+                    taken.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                long amount = toHundredths(entry.getValue());
+                while (true) {
+                    long current = counter.get();
+                    long take = Math.min(amount, Math.max(current, 0));
+                    if (counter.compareAndSet(current, current - take)) {
+                        if (take > 0) {
+                            taken.put(entry.getKey(), take / 100.0);
+                        }
+                        break;
+                    }
+                }
+            }
+            T result = work.run(taken);
+            done = true;
+            return result;
+        } finally {
+            if (!done && enabled) {
+                for (Map.Entry<Integer, Double> entry : taken.entrySet()) {
+                    AtomicLong counter = stock.get(entry.getKey());
+                    if (counter != null) {
+                        counter.addAndGet(toHundredths(entry.getValue()));
+                    }
+                }
+            }
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    // The order's transaction committed, so its Usage rows now account for what it took
+    void committed(int orderId) {
+        inFlight.remove(orderId);
+    }
+
+    // Puts back what an order took when its transaction rolled back
+    void release(int orderId) {
+        reloadLock.readLock().lock();
+        try {
+            Map<Integer, Long> taken = inFlight.remove(orderId);
+            if (taken != null && enabled) {
+                putBack(taken);
+            }
+        } finally {
+            reloadLock.readLock().unlock();
+        }
+    }
+
+    private void putBack(Map<Integer, Long> hundredths) {
+        for (Map.Entry<Integer, Long> entry : hundredths.entrySet()) {
+            AtomicLong counter = stock.get(entry.getKey());
+            if (counter != null) {
+                counter.addAndGet(entry.getValue());
+            }
+        }
+    }
+
+    // A committed relative change made directly on Ingredients, e.g. a restock
+    public void stockAdjusted(int ingredientId, double quantityChange) {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong counter = stock.get(ingredientId);
+        if (counter != null) {
+            counter.addAndGet(toHundredths(quantityChange));
+        }
+    }
+
+    // Re-reads ingredients whose stock was set outright (edits, deletes, new batches)
+    public void refreshIngredients(Collection<Integer> ingredientIds) {
+        if (!enabled || ingredientIds.isEmpty()) {
+            return;
+        }
+        reloadLock.writeLock().lock();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // One snapshot for the stock and for which in-flight orders have committed
+            conn.setAutoCommit(false);
+            try {
+                load(conn, new ArrayList<>(new HashSet<>(ingredientIds)), true);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            reloadLock.writeLock().unlock();
+        }
+    }
+
+    // Writes everything pending now, e.g. before reading quantity_in_stock straight from the table
+    public void flush() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            applyPending(conn);
+        }
+    }
+
+    // Applies every Usage row still marked stock_pending to Ingredients. Runs at startup for crash recovery
+    // whether or not the ledger is enabled.
+    public void applyPending(Connection conn) throws SQLException {
+        while (applyPendingBatch(conn) == FLUSH_BATCH_SIZE) {
+            // More left
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            // Rows stay pending and the next flush retries them
+            e.printStackTrace();
+        }
+    }
+
+    private int applyPendingBatch(Connection conn) throws SQLException {
+        List<Integer> candidates = new ArrayList<>();
+        String findQuery = """
+            SELECT transaction_id
+            FROM IngredientTransactions
+            WHERE stock_pending = TRUE
+            ORDER BY transaction_id
+            LIMIT ?
+        """;
+        try (PreparedStatement stmt = conn.prepareStatement(findQuery)) {
+            stmt.setInt(1, FLUSH_BATCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(rs.getInt("transaction_id"));
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        boolean originalAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            // Lock the rows by primary key (no gap locks, so new orders keep inserting) and re-check the mark,
+            // in case a flusher in another process got to them first
+            String lockQuery = """
+                SELECT transaction_id, ingredient_id, quantity_change
+                FROM IngredientTransactions
+                WHERE transaction_id IN (%s) AND stock_pending = TRUE
+                FOR UPDATE
+            """.formatted(placeholders(candidates.size()));
+            List<Integer> transactionIds = new ArrayList<>();
+            Map<Integer, Double> changes = new TreeMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                bindIds(stmt, 1, candidates);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        transactionIds.add(rs.getInt("transaction_id"));
+                        changes.merge(rs.getInt("ingredient_id"), rs.getDouble("quantity_change"), Double::sum);
+                    }
+                }
+            }
+            if (transactionIds.isEmpty()) {
+                conn.rollback();
+                return candidates.size();
+            }
+
+            // One statement for every ingredient, locked in ascending id order
+            List<Integer> ingredientIds = new ArrayList<>(changes.keySet());
+            StringBuilder amountCase = new StringBuilder("CASE ingredient_id");
+            for (int i = 0; i < ingredientIds.size(); i++) {
+                amountCase.append(" WHEN ? THEN ?");
+            }
+            amountCase.append(" END");
+            String updateQuery = """
+                UPDATE Ingredients
+                SET quantity_in_stock = quantity_in_stock + (%s)
+                WHERE ingredient_id IN (%s)
+            """.formatted(amountCase, placeholders(ingredientIds.size()));
+            try (PreparedStatement stmt = conn.prepareStatement(updateQuery)) {
+                int index = 1;
+                for (Map.Entry<Integer, Double> entry : changes.entrySet()) {
+                    stmt.setInt(index++, entry.getKey());
+                    stmt.setDouble(index++, Math.round(entry.getValue() * 100) / 100.0);
+                }
+                bindIds(stmt, index, ingredientIds);
+                stmt.executeUpdate();
+            }
+            // The Ingredients rows are locked now, so batches can be consumed the same way an order would
+            Map<Integer, Double> used = new TreeMap<>();
+            changes.forEach((ingredientId, change) -> {
+                if (change < 0) {
+                    used.put(ingredientId, Math.round(-change * 100) / 100.0);
+                }
+            });
+            Map<Integer, Double> batchesAfter = batchDAO.consumeFirstExpiring(conn, used);
+
+            String clearQuery = """
+                UPDATE IngredientTransactions
+                SET stock_pending = FALSE
+                WHERE transaction_id IN (%s)
+            """.formatted(placeholders(transactionIds.size()));
+            try (PreparedStatement stmt = conn.prepareStatement(clearQuery)) {
+                bindIds(stmt, 1, transactionIds);
+                stmt.executeUpdate();
+            }
+
+            conn.commit();
+            ExpiringBatchIndex.getInstance().batchesConsumed(batchesAfter);
+            return candidates.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(originalAutoCommit);
+        }
+    }
+
+    // Stock as the ledger sees it: the table value less any usage not yet flushed. null loads every ingredient.
+    // With replace, existing counters are overwritten, less whatever in-flight orders took that this snapshot
+    // cannot see; the caller must hold the write lock. Without it, only missing counters are added.
+    private void load(Connection conn, List<Integer> ingredientIds, boolean replace) throws SQLException {
+        String filter = ingredientIds == null ? "" : "WHERE i.ingredient_id IN (%s)".formatted(placeholders(ingredientIds.size()));
+        String query = """
+            SELECT i.ingredient_id, i.quantity_in_stock + COALESCE(SUM(t.quantity_change), 0) AS stock
+            FROM Ingredients i
+            LEFT JOIN IngredientTransactions t
+                ON t.ingredient_id = i.ingredient_id AND t.stock_pending = TRUE
+            %s
+            GROUP BY i.ingredient_id, i.quantity_in_stock
+        """.formatted(filter);
+        // Taken before the read, so an order that commits and settles in between is still checked below
+        Map<Integer, Map<Integer, Long>> pending = replace ? new HashMap<>(inFlight) : Map.of();
+        Map<Integer, Long> loaded = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            if (ingredientIds != null) {
+                bindIds(stmt, 1, ingredientIds);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loaded.put(rs.getInt("ingredient_id"), toHundredths(rs.getDouble("stock")));
+                }
+            }
+        }
+        if (!replace) {
+            loaded.forEach((ingredientId, hundredths) -> stock.putIfAbsent(ingredientId, new AtomicLong(hundredths)));
+            return;
+        }
+
+        List<Integer> pendingOrders = new ArrayList<>(pending.keySet());
+        if (!pendingOrders.isEmpty()) {
+            // Orders whose Usage rows this snapshot already sees are counted in the stock read above
+            String committedQuery = """
+                SELECT DISTINCT order_id
+                FROM IngredientTransactions
+                WHERE transaction_type = 'Usage' AND order_id IN (%s)
+            """.formatted(placeholders(pendingOrders.size()));
+            try (PreparedStatement stmt = conn.prepareStatement(committedQuery)) {
+                bindIds(stmt, 1, pendingOrders);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        pendingOrders.remove(Integer.valueOf(rs.getInt("order_id")));
+                    }
+                }
+            }
+        }
+        for (Integer orderId : pendingOrders) {
+            pending.get(orderId).forEach((ingredientId, hundredths) -> loaded.computeIfPresent(ingredientId, (id, value) -> value - hundredths));
+        }
+        loaded.forEach((ingredientId, hundredths) -> stock.computeIfAbsent(ingredientId, id -> new AtomicLong()).set(hundredths));
+    }
+
+    private static long toHundredths(double quantity) {
+        return Math.round(quantity * 100);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindIds(PreparedStatement stmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            stmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package dao;
+
+import model.OrderItem;
+import util.DatabaseConnection;
+import util.ErrorChannel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Time-limited holds on ingredient stock for carts still being built at a terminal, so two cashiers cannot
+// both sell the last portions. A hold counts against availability for every other cart and order until
+// it expires, its cart is cleared, or its order is placed (which turns the hold into the deduction).
+// Expired holds no longer count anywhere; holdCart deletes those on the ingredients it locks, and
+// deleteExpiredHolds clears the rest at startup.
+public class StockReservationDAO {
+    // A cart left alone this long gives its stock back
+    public static final int HOLD_SECONDS = 180;
+
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getConnection();
+    }
+
+    // Sets the cart's holds to exactly what its items need and restarts their timer. Fails, keeping the
+    // previous holds, if stock not held by other carts cannot cover it.
+    public boolean holdCart(String cartId, List<OrderItem> items) {
+        Connection conn = null;
+        boolean originalAutoCommit = true;
+        try {
+            conn = getConnection();
+            originalAutoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+
+            Map<Integer, Double> needed = OrderDAO.ingredientsNeeded(conn, items);
+            List<Integer> ingredientIds = new ArrayList<>(needed.keySet());
+            if (!ingredientIds.isEmpty()) {
+                // Lock the stock rows in ascending order, the same way order placement does, so a hold and
+                // an order for the same ingredient never both pass their checks
+                String lockQuery = """
+                    SELECT ingredient_id, name, quantity_in_stock
+                    FROM Ingredients
+                    WHERE ingredient_id IN (%s)
+                    ORDER BY ingredient_id
+                    FOR UPDATE
+                """.formatted(placeholders(ingredientIds.size()));
+                Map<Integer, Double> stock = new HashMap<>();
+                Map<Integer, String> names = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(lockQuery)) {
+                    bindIds(stmt, 1, ingredientIds);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            stock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                            names.put(rs.getInt("ingredient_id"), rs.getString("name"));
+                        }
+                    }
+                }
+                // Usage the in-memory stock ledger has not written back yet is already spoken for. While the
+                // ledger is on, its counters also cover orders that have not committed yet, so they win.
+                Map<Integer, Double> pending = getPendingUsage(conn, ingredientIds);
+                Map<Integer, Double> ledgerStock = StockLedger.getInstance().isEnabled()
+                    ? StockLedger.getInstance().getStock(ingredientIds) : Map.of();
+                // Locking read, for the same reason as in OrderDAO.deductIngredients
+                Map<Integer, Double> held = getHeldByOthers(conn, ingredientIds, cartId, true);
+                for (Map.Entry<Integer, Double> entry : needed.entrySet()) {
+                    int ingredientId = entry.getKey();
+                    double available = ledgerStock.containsKey(ingredientId)
+                        ? ledgerStock.get(ingredientId)
+                        : stock.getOrDefault(ingredientId, 0.0) + pending.getOrDefault(ingredientId, 0.0);
+                    double free = available - held.getOrDefault(ingredientId, 0.0);
+                    if (Math.round(free * 100) / 100.0 < entry.getValue()) {
+                        conn.rollback();
+                        ErrorChannel.insufficientStock(
+                            String.format("Not enough %s left for this order (%.2f available, %.2f needed).%n" +
+                                "Other orders in progress may be holding the rest.",
+                                names.getOrDefault(ingredientId, "ingredient #" + ingredientId),
+                                Math.max(free, 0), entry.getValue()),
+                            "Insufficient Stock");
+                        return false;
+                    }
+                }
+            }
+
+            releaseHolds(conn, cartId);
+            if (!ingredientIds.isEmpty()) {
+                // Still under the row locks, so no order is reading these holds right now
+                String purgeQuery = """
+                    DELETE FROM StockReservations
+                    WHERE ingredient_id IN (%s) AND expires_at <= CURRENT_TIMESTAMP
+                """.formatted(placeholders(ingredientIds.size()));
+                try (PreparedStatement stmt = conn.prepareStatement(purgeQuery)) {
+                    bindIds(stmt, 1, ingredientIds);
+                    stmt.executeUpdate();
+                }
+
+                String insertQuery = """
+                    INSERT INTO StockReservations (cart_id, ingredient_id, quantity, expires_at)
+                    VALUES %s
+                """.formatted(String.join(", ", Collections.nCopies(ingredientIds.size(),
+                    "(?, ?, ?, CURRENT_TIMESTAMP + INTERVAL %d SECOND)".formatted(HOLD_SECONDS))));
+                try (PreparedStatement stmt = conn.prepareStatement(insertQuery)) {
+                    int index = 1;
+                    for (Map.Entry<Integer, Double> entry : needed.entrySet()) {
+                        stmt.setString(index++, cartId);
+                        stmt.setInt(index++, entry.getKey());
+                        stmt.setDouble(index++, entry.getValue());
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            e.printStackTrace();
+            ErrorChannel.databaseError(
+                "Failed to hold stock for the order: " + e.getMessage(),
+                "Database Error",
+                e);
+            return false;
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(originalAutoCommit);
+                    conn.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public boolean releaseCart(String cartId) {
+        try (Connection conn = getConnection()) {
+            releaseHolds(conn, cartId);
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Active holds of all carts except exceptCartId (null excludes none), per ingredient
+    public Map<Integer, Double> getHeldByOthers(List<Integer> ingredientIds, String exceptCartId) {
+        try (Connection conn = getConnection()) {
+            return getHeldByOthers(conn, ingredientIds, exceptCartId, false);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new HashMap<>();
+        }
+    }
+
+    // Expired holds are already ignored everywhere; this just keeps the table small
+    public int deleteExpiredHolds() {
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate("DELETE FROM StockReservations WHERE expires_at <= CURRENT_TIMESTAMP");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    void releaseHolds(Connection conn, String cartId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM StockReservations WHERE cart_id = ?")) {
+            stmt.setString(1, cartId);
+            stmt.executeUpdate();
+        }
+    }
+
+    // With lockingRead, reads the latest committed holds (FOR SHARE) instead of the transaction's snapshot;
+    // use it only while holding the Ingredients row locks, which is what orders serialize on
+    Map<Integer, Double> getHeldByOthers(Connection conn, List<Integer> ingredientIds, String exceptCartId,
+                                         boolean lockingRead) throws SQLException {
+        Map<Integer, Double> held = new HashMap<>();
+        if (ingredientIds.isEmpty()) {
+            return held;
+        }
+        String query = """
+            SELECT ingredient_id, SUM(quantity) AS held
+            FROM StockReservations
+            WHERE ingredient_id IN (%s) AND expires_at > CURRENT_TIMESTAMP AND cart_id <> ?
+            GROUP BY ingredient_id
+            %s
+        """.formatted(placeholders(ingredientIds.size()), lockingRead ? "FOR SHARE" : "");
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindIds(stmt, 1, ingredientIds);
+            stmt.setString(ingredientIds.size() + 1, exceptCartId != null ? exceptCartId : "");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    held.put(rs.getInt("ingredient_id"), rs.getDouble("held"));
+                }
+            }
+        }
+        return held;
+    }
+
+    private Map<Integer, Double> getPendingUsage(Connection conn, List<Integer> ingredientIds) throws SQLException {
+        Map<Integer, Double> pending = new HashMap<>();
+        String query = """
+            SELECT ingredient_id, SUM(quantity_change) AS pending
+            FROM IngredientTransactions
+            WHERE stock_pending = TRUE AND ingredient_id IN (%s)
+            GROUP BY ingredient_id
+        """.formatted(placeholders(ingredientIds.size()));
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            bindIds(stmt, 1, ingredientIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    pending.put(rs.getInt("ingredient_id"), rs.getDouble("pending"));
+                }
+            }
+        }
+        return pending;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static void bindIds(PreparedStatement stmt, int firstIndex, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            stmt.setInt(firstIndex + i, ids.get(i));
+        }
+    }
+}
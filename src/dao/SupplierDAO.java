@@ -3,10 +3,10 @@ package dao;
 import model.Supplier;
 import model.Inventory;
 import util.DatabaseConnection;
+import util.ErrorChannel;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import javax.swing.JOptionPane;
 
 public class SupplierDAO {
     private Connection getConnection() throws SQLException {
@@ -15,7 +15,8 @@ public class SupplierDAO {
 
     public Supplier getSupplierById(int supplierId) {
         String query = "SELECT * FROM Suppliers WHERE supplier_id = ? AND is_deleted = FALSE";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, supplierId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
@@ -31,7 +32,8 @@ public class SupplierDAO {
     public List<Supplier> getAllSuppliers() {
         List<Supplier> suppliers = new ArrayList<>();
         String query = "SELECT * FROM Suppliers WHERE is_deleted = FALSE ORDER BY name";
-        try (Statement stmt = getConnection().createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
             while (rs.next()) {
                 suppliers.add(mapResultSetToSupplier(rs));
@@ -44,7 +46,8 @@ public class SupplierDAO {
 
     public boolean addSupplier(Supplier supplier) {
         String query = "INSERT INTO Suppliers (name, contact_person, email, phone, address) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, supplier.getName());
             pstmt.setString(2, supplier.getContactPerson());
             pstmt.setString(3, supplier.getEmail());
@@ -69,7 +72,8 @@ public class SupplierDAO {
 
     public boolean updateSupplier(Supplier supplier) {
         String query = "UPDATE Suppliers SET name = ?, contact_person = ?, email = ?, phone = ?, address = ? WHERE supplier_id = ?";
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, supplier.getName());
             pstmt.setString(2, supplier.getContactPerson());
             pstmt.setString(3, supplier.getEmail());
@@ -93,10 +97,9 @@ public class SupplierDAO {
             checkStmt.setInt(1, supplierId);
             try (ResultSet rs = checkStmt.executeQuery()) {
                 if (rs.next() && rs.getInt(1) > 0) {
-                    JOptionPane.showMessageDialog(null,
+                    ErrorChannel.rejected(
                         "Cannot delete supplier because they are a primary supplier for some ingredients.",
-                        "Delete Failed",
-                        JOptionPane.WARNING_MESSAGE);
+                        "Delete Failed");
                     return false;
                 }
             }
@@ -109,10 +112,10 @@ public class SupplierDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to delete supplier: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -125,7 +128,8 @@ public class SupplierDAO {
             JOIN IngredientSuppliers s ON i.ingredient_id = s.ingredient_id
             WHERE s.supplier_id = ?
         """;
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setInt(1, supplierId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -152,7 +156,8 @@ public class SupplierDAO {
                       "(name LIKE ? OR contact_person LIKE ? OR email LIKE ?) " +
                       "ORDER BY name";
         
-        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             String term = "%" + searchTerm + "%";
             pstmt.setString(1, term);
             pstmt.setString(2, term);
@@ -190,10 +195,10 @@ public class SupplierDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to fetch deleted suppliers: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
         }
         return suppliers;
     }
@@ -208,10 +213,10 @@ public class SupplierDAO {
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(null,
+            ErrorChannel.databaseError(
                 "Failed to restore supplier: " + e.getMessage(),
                 "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+                e);
             return false;
         }
     }
@@ -0,0 +1,24 @@
+package model;
+
+import java.util.Date;
+
+// One line of a supplier delivery: received quantity of one ingredient at a unit price, with the batch's
+// expiry date (null if it does not expire)
+public class DeliveryLine {
+    private final int ingredientId;
+    private final double quantity;
+    private final double unitPrice;
+    private final Date expiryDate;
+
+    public DeliveryLine(int ingredientId, double quantity, double unitPrice, Date expiryDate) {
+        this.ingredientId = ingredientId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.expiryDate = expiryDate;
+    }
+
+    public int getIngredientId() { return ingredientId; }
+    public double getQuantity() { return quantity; }
+    public double getUnitPrice() { return unitPrice; }
+    public Date getExpiryDate() { return expiryDate; }
+}
@@ -0,0 +1,32 @@
+package model;
+
+// Outcome of one delivery line. A delivery is received whole or not at all, so when any line is rejected
+// every line comes back not received, and message says which lines were at fault.
+public class DeliveryLineResult {
+    private final int lineNumber;
+    private final int ingredientId;
+    private final boolean received;
+    private final int batchId;
+    private final double stockAfter;
+    private final String message;
+
+    public DeliveryLineResult(int lineNumber, int ingredientId, boolean received, int batchId, double stockAfter,
+                              String message) {
+        this.lineNumber = lineNumber;
+        this.ingredientId = ingredientId;
+        this.received = received;
+        this.batchId = batchId;
+        this.stockAfter = stockAfter;
+        this.message = message;
+    }
+
+    // 1-based position in the delivery
+    public int getLineNumber() { return lineNumber; }
+    public int getIngredientId() { return ingredientId; }
+    public boolean isReceived() { return received; }
+    // The IngredientBatches row created for this line, or 0 if not received
+    public int getBatchId() { return batchId; }
+    // quantity_in_stock once the whole delivery was applied, or 0 if not received
+    public double getStockAfter() { return stockAfter; }
+    public String getMessage() { return message; }
+}
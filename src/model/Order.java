@@ -17,6 +17,8 @@ public class Order {
     private String paymentMethod;
     private List<OrderItem> items;
     private List<Integer> assignedEmployees;
+    // Cart whose stock holds this order takes over when it is placed; not stored with the order
+    private String cartId;
 
     public Order() {
         this.items = new ArrayList<>();
@@ -143,6 +145,14 @@ public class Order {
         items.remove(item);
     }
 
+    public double getItemsTotal() {
+        double total = 0.0;
+        for (OrderItem item : items) {
+            total += item.getSubtotal();
+        }
+        return total;
+    }
+
     public List<Integer> getAssignedEmployees() {
         return assignedEmployees;
     }
@@ -158,4 +168,12 @@ public class Order {
     public void removeAssignedEmployee(int employeeId) {
         assignedEmployees.remove(Integer.valueOf(employeeId));
     }
-} 
\ No newline at end of file
+
+    public String getCartId() {
+        return cartId;
+    }
+
+    public void setCartId(String cartId) {
+        this.cartId = cartId;
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+// What the reorder engine recommends for one ingredient. supplierId is 0 when the ingredient has no supplier
+// on record, in which case leadTimeDays is the engine's default and unitPrice is 0.
+public class ReorderSuggestion {
+    private final int ingredientId;
+    private final String ingredientName;
+    private final String unitName;
+    private final double quantityInStock;
+    private final double dailyUsage;
+    private final int supplierId;
+    private final String supplierName;
+    private final int leadTimeDays;
+    private final double unitPrice;
+    private final double reorderPoint;
+    private final double suggestedQuantity;
+
+    public ReorderSuggestion(int ingredientId, String ingredientName, String unitName, double quantityInStock,
+                             double dailyUsage, int supplierId, String supplierName, int leadTimeDays,
+                             double unitPrice, double reorderPoint, double suggestedQuantity) {
+        this.ingredientId = ingredientId;
+        this.ingredientName = ingredientName;
+        this.unitName = unitName;
+        this.quantityInStock = quantityInStock;
+        this.dailyUsage = dailyUsage;
+        this.supplierId = supplierId;
+        this.supplierName = supplierName;
+        this.leadTimeDays = leadTimeDays;
+        this.unitPrice = unitPrice;
+        this.reorderPoint = reorderPoint;
+        this.suggestedQuantity = suggestedQuantity;
+    }
+
+    // Stock is at or below the reorder point
+    public boolean isReorderNeeded() {
+        return suggestedQuantity > 0;
+    }
+
+    public double getEstimatedCost() {
+        return Math.round(suggestedQuantity * unitPrice * 100) / 100.0;
+    }
+
+    public int getIngredientId() { return ingredientId; }
+    public String getIngredientName() { return ingredientName; }
+    public String getUnitName() { return unitName; }
+    public double getQuantityInStock() { return quantityInStock; }
+    // Expected usage per day over the coming week
+    public double getDailyUsage() { return dailyUsage; }
+    public int getSupplierId() { return supplierId; }
+    public String getSupplierName() { return supplierName; }
+    public int getLeadTimeDays() { return leadTimeDays; }
+    public double getUnitPrice() { return unitPrice; }
+    public double getReorderPoint() { return reorderPoint; }
+    public double getSuggestedQuantity() { return suggestedQuantity; }
+}
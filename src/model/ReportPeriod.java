@@ -0,0 +1,53 @@
+package model;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+// Reporting period from the day/month/year fields, where 0 means "any".
+// Contiguous selections become a half-open [from, to) range on order_datetime so reports can use the index;
+// the rest (e.g. "every March" with no year) keep a month/day filter on top of the widest range that fits.
+public class ReportPeriod {
+    private final Timestamp from;
+    private final Timestamp to;
+    private final int month;
+    private final int day;
+
+    private ReportPeriod(Timestamp from, Timestamp to, int month, int day) {
+        this.from = from;
+        this.to = to;
+        this.month = month;
+        this.day = day;
+    }
+
+    public static ReportPeriod of(int year, int month, int day) {
+        if (year == 0) {
+            return new ReportPeriod(null, null, month, day);
+        }
+        if (month == 0) {
+            LocalDate start = LocalDate.of(year, 1, 1);
+            return new ReportPeriod(startOf(start), startOf(start.plusYears(1)), 0, day);
+        }
+        if (day == 0) {
+            LocalDate start = LocalDate.of(year, month, 1);
+            return new ReportPeriod(startOf(start), startOf(start.plusMonths(1)), 0, 0);
+        }
+        LocalDate start = LocalDate.of(year, month, day);
+        return new ReportPeriod(startOf(start), startOf(start.plusDays(1)), 0, 0);
+    }
+
+    private static Timestamp startOf(LocalDate date) {
+        return Timestamp.valueOf(date.atStartOfDay());
+    }
+
+    // Inclusive lower bound, or null when unbounded
+    public Timestamp getFrom() { return from; }
+
+    // Exclusive upper bound, or null when unbounded
+    public Timestamp getTo() { return to; }
+
+    // Month that must match when it could not be folded into the range, otherwise 0
+    public int getMonth() { return month; }
+
+    // Day of month that must match when it could not be folded into the range, otherwise 0
+    public int getDay() { return day; }
+}
@@ -0,0 +1,642 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controller.RestaurantController;
+import model.DeliveryLine;
+import model.DeliveryLineResult;
+import model.Dish;
+import model.Ingredient;
+import model.Order;
+import model.OrderItem;
+import model.ReorderSuggestion;
+import model.ReportPeriod;
+import util.BackgroundExecutor;
+import util.ConnectionPool;
+import util.DataAccessError;
+import util.DatabaseConnection;
+import util.ErrorChannel;
+import util.QueryMetrics;
+
+import javax.swing.table.DefaultTableModel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+// Headless server mode: one RestaurantController (one connection pool, one warm recipe cache and stock
+// view) shared by any number of thin POS clients over HTTP/JSON.
+//
+//   GET  /api/health                      GET  /api/inventory
+//   GET  /api/menu                        GET  /api/inventory/low-stock
+//   GET  /api/orders?limit=&afterDateTime=&afterOrderId=
+//   GET  /api/orders/{id}                 GET  /api/reports/{sales|customer-orders|employee-shifts|profit-margin}
+//   POST /api/orders                          ?year=&month=&day=
+//   POST /api/orders/{id}/payment         GET  /api/metrics
+//   POST /api/orders/{id}/cancel
+//
+// Failures come back as {"error": ...} with a status derived from the DataAccessError the call reported.
+// There is no authentication, so it listens on loopback only unless --bind says otherwise.
+public class ApiServer {
+    private static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_THREADS = 32;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Set<String> ORDER_TYPES = Set.of("Dine-In", "Takeout", "Delivery");
+    private static final Set<String> PAYMENT_METHODS = Set.of("Cash", "Credit Card");
+
+    private final RestaurantController controller;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, Report> reports = new LinkedHashMap<>();
+
+    public ApiServer(RestaurantController controller, String bindAddress, int port, int threads) throws IOException {
+        this.controller = controller;
+        // Request threads only wait on the connection pool, which caps how many queries actually run at once
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "api-request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+
+        // Same columns as the Reports tab
+        reports.put("sales", new Report(controller::generateSalesReport,
+            "Sales Date", "Total Sales", "Average Sales", "Top Product", "Units Sold"));
+        reports.put("customer-orders", new Report(controller::generateCustomerOrdersReport,
+            "Total Orders", "Total Amount Spent", "Most Bought Product", "Most Bought Quantity"));
+        reports.put("employee-shifts", new Report(controller::generateEmployeeShiftsReport,
+            "First Name", "Last Name", "Total Shifts", "Total Hours"));
+        reports.put("profit-margin", new Report(controller::generateProfitMarginReport,
+            "Order Date", "Total Orders", "Total Quantity", "Revenue", "Cost", "Profit"));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object body;
+        try {
+            ErrorChannel.takeLastError(); // Start every request with a clean error slot
+            String path = exchange.getRequestURI().getPath().substring("/api/".length());
+            List<String> parts = new ArrayList<>();
+            for (String part : path.split("/")) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+
+            if (method.equals("POST") && parts.equals(List.of("orders"))) {
+                status = 201;
+            }
+            body = route(method, parts, query, exchange);
+        } catch (ApiException e) {
+            status = e.status;
+            body = Json.object("error", e.getMessage());
+        } catch (IOException e) {
+            // The request body could not be read
+            status = 400;
+            body = Json.object("error", "Could not read request: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            status = 500;
+            body = Json.object("error", "Internal error: " + e.getMessage());
+        }
+        try {
+            send(exchange, status, body);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object route(String method, List<String> parts, Map<String, String> query,
+                         HttpExchange exchange) throws IOException {
+        String resource = parts.isEmpty() ? "" : parts.get(0);
+        switch (resource) {
+            case "health":
+                requireMethod(method, "GET");
+                return Json.object("status", "ok");
+            case "menu":
+                requireMethod(method, "GET");
+                return menu();
+            case "orders":
+                if (parts.size() == 1) {
+                    if (method.equals("POST")) {
+                        return createOrder(readBody(exchange));
+                    }
+                    requireMethod(method, "GET");
+                    return ordersPage(query);
+                }
+                int orderId = parseId(parts.get(1));
+                if (parts.size() == 2) {
+                    requireMethod(method, "GET");
+                    return order(orderId);
+                }
+                if (parts.size() == 3 && parts.get(2).equals("payment")) {
+                    requireMethod(method, "POST");
+                    return pay(orderId, readBody(exchange));
+                }
+                if (parts.size() == 3 && parts.get(2).equals("cancel")) {
+                    requireMethod(method, "POST");
+                    if (!controller.cancelUnpaidOrder(orderId)) {
+                        throw failure("Could not cancel order " + orderId);
+                    }
+                    return Json.object("orderId", orderId, "orderStatus", "Cancelled");
+                }
+                break;
+            case "inventory":
+                if (parts.size() == 2 && parts.get(1).equals("deliveries")) {
+                    requireMethod(method, "POST");
+                    return receiveDelivery(readBody(exchange));
+                }
+                requireMethod(method, "GET");
+                if (parts.size() == 1) {
+                    return ingredients(controller.getAllIngredients());
+                }
+                if (parts.size() == 2 && parts.get(1).equals("low-stock")) {
+                    return ingredients(controller.getLowStockIngredients());
+                }
+                if (parts.size() == 2 && parts.get(1).equals("reorder")) {
+                    return reorderSuggestions(controller.getReorderSuggestions());
+                }
+                break;
+            case "reports":
+                requireMethod(method, "GET");
+                if (parts.size() == 2 && reports.containsKey(parts.get(1))) {
+                    return report(reports.get(parts.get(1)), query);
+                }
+                break;
+            case "metrics":
+                requireMethod(method, "GET");
+                return metrics();
+            default:
+                break;
+        }
+        throw new ApiException(404, "No such resource: /api/" + String.join("/", parts));
+    }
+
+    private Object menu() {
+        List<Object> dishes = new ArrayList<>();
+        for (Dish dish : controller.getAllDishes()) {
+            int portions = controller.getPortionsAvailable(dish.getDishId());
+            dishes.add(Json.object(
+                "dishId", dish.getDishId(),
+                "name", dish.getName(),
+                "category", dish.getCategoryName(),
+                "price", dish.getSellingPrice(),
+                "available", dish.isAvailable(),
+                "portionsAvailable", portions == RestaurantController.UNLIMITED_PORTIONS ? null : portions));
+        }
+        return dishes;
+    }
+
+    private Object ordersPage(Map<String, String> query) {
+        int limit = Math.min(parseInt(query, "limit", DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        if (limit <= 0) {
+            throw new ApiException(400, "limit must be positive");
+        }
+        Timestamp afterDateTime = null;
+        if (query.containsKey("afterDateTime")) {
+            try {
+                afterDateTime = Timestamp.valueOf(query.get("afterDateTime"));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "afterDateTime must look like 2025-03-14 12:30:00");
+            }
+        }
+        List<Order> orders = controller.getOrdersPage(afterDateTime, parseInt(query, "afterOrderId", 0), limit);
+
+        List<Object> page = new ArrayList<>();
+        for (Order order : orders) {
+            page.add(orderJson(order));
+        }
+        // Keyset cursor for the next page, or null after the last one
+        Object next = null;
+        if (orders.size() == limit) {
+            Order last = orders.get(orders.size() - 1);
+            next = Json.object("afterDateTime", last.getOrderDateTime(), "afterOrderId", last.getOrderId());
+        }
+        return Json.object("orders", page, "next", next);
+    }
+
+    private Object order(int orderId) {
+        Order order = controller.getOrderById(orderId);
+        if (order == null) {
+            throw new ApiException(404, "Order " + orderId + " not found");
+        }
+        return orderJson(order);
+    }
+
+    private Object createOrder(Map<String, Object> request) {
+        Order order = new Order();
+        order.setCustomerId(requireInt(request, "customerId"));
+        String orderType = request.containsKey("orderType") ? String.valueOf(request.get("orderType")) : "Dine-In";
+        if (!ORDER_TYPES.contains(orderType)) {
+            throw new ApiException(400, "orderType must be one of " + ORDER_TYPES);
+        }
+        order.setOrderType(orderType);
+        order.setOrderStatus("In Progress");
+        order.setPaymentStatus("Pending");
+
+        if (!(request.get("items") instanceof List<?> lines) || lines.isEmpty()) {
+            throw new ApiException(400, "items must be a non-empty list of {dishId, quantity}");
+        }
+        // One line per dish (OrderItems is keyed by order and dish), priced from the menu, not the client
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
+        for (Object line : lines) {
+            if (!(line instanceof Map<?, ?> item)) {
+                throw new ApiException(400, "items must be a non-empty list of {dishId, quantity}");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> fields = (Map<String, Object>) item;
+            int quantity = requireInt(fields, "quantity");
+            if (quantity <= 0) {
+                throw new ApiException(400, "quantity must be positive");
+            }
+            quantities.merge(requireInt(fields, "dishId"), quantity, Integer::sum);
+        }
+        List<OrderItem> items = new ArrayList<>();
+        double total = 0;
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            Dish dish = controller.getDishById(line.getKey());
+            if (dish == null) {
+                throw new ApiException(400, "Unknown dish " + line.getKey());
+            }
+            if (!dish.isAvailable()) {
+                throw new ApiException(409, dish.getName() + " is not available");
+            }
+            items.add(new OrderItem(0, dish.getDishId(), dish.getName(), line.getValue(), dish.getSellingPrice()));
+            total += line.getValue() * dish.getSellingPrice();
+        }
+        order.setTotalAmount(total);
+
+        List<Integer> employeeIds = new ArrayList<>();
+        if (request.get("employeeIds") instanceof List<?> ids) {
+            for (Object id : ids) {
+                if (!(id instanceof Double number)) {
+                    throw new ApiException(400, "employeeIds must be a list of numbers");
+                }
+                employeeIds.add(number.intValue());
+            }
+        }
+
+        if (!controller.createOrder(order, items, employeeIds)) {
+            throw failure("Could not create order");
+        }
+        return Json.object("orderId", order.getOrderId(), "totalAmount", total);
+    }
+
+    private Object pay(int orderId, Map<String, Object> request) {
+        Object amount = request.get("amount");
+        if (!(amount instanceof Double received)) {
+            throw new ApiException(400, "amount is required");
+        }
+        String paymentMethod = String.valueOf(request.get("paymentMethod"));
+        if (!PAYMENT_METHODS.contains(paymentMethod)) {
+            throw new ApiException(400, "paymentMethod must be one of " + PAYMENT_METHODS);
+        }
+        Order order = controller.getOrderById(orderId);
+        if (order == null) {
+            throw new ApiException(404, "Order " + orderId + " not found");
+        }
+        // Same rule as the Payment tab; the order keeps its own total, not what was handed over
+        double total = Math.round(order.getItemsTotal() * 100) / 100.0;
+        if (!(received >= total)) {
+            throw new ApiException(400, String.format("amount must be at least the order total of %.2f", total));
+        }
+        if (!controller.processPayment(orderId, total, paymentMethod)) {
+            throw failure("Could not process payment for order " + orderId);
+        }
+        return Json.object("orderId", orderId, "paymentStatus", "Paid", "orderStatus", "Completed",
+            "totalAmount", total, "change", Math.round((received - total) * 100) / 100.0);
+    }
+
+    private Object receiveDelivery(Map<String, Object> request) {
+        int supplierId = requireInt(request, "supplierId");
+        int employeeId = requireInt(request, "employeeId");
+        String notes = request.containsKey("notes") ? String.valueOf(request.get("notes")) : "Supplier delivery";
+        if (!(request.get("lines") instanceof List<?> entries) || entries.isEmpty()) {
+            throw new ApiException(400, "lines must be a non-empty list of {ingredientId, quantity, unitPrice, expiryDate}");
+        }
+        List<DeliveryLine> lines = new ArrayList<>();
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?> line)) {
+                throw new ApiException(400, "lines must be a non-empty list of {ingredientId, quantity, unitPrice, expiryDate}");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> fields = (Map<String, Object>) line;
+            if (!(fields.get("quantity") instanceof Double quantity) || !(fields.get("unitPrice") instanceof Double unitPrice)) {
+                throw new ApiException(400, "quantity and unitPrice are required on every line");
+            }
+            java.sql.Date expiryDate = null;
+            if (fields.get("expiryDate") != null) {
+                try {
+                    expiryDate = java.sql.Date.valueOf(LocalDate.parse(String.valueOf(fields.get("expiryDate"))));
+                } catch (DateTimeException e) {
+                    throw new ApiException(400, "expiryDate must be YYYY-MM-DD");
+                }
+            }
+            lines.add(new DeliveryLine(requireInt(fields, "ingredientId"), quantity, unitPrice, expiryDate));
+        }
+
+        List<DeliveryLineResult> results = controller.receiveDelivery(supplierId, employeeId, lines, notes);
+        boolean received = !results.isEmpty() && results.stream().allMatch(DeliveryLineResult::isReceived);
+        DataAccessError error = ErrorChannel.takeLastError();
+        List<Object> lineResults = new ArrayList<>();
+        for (DeliveryLineResult result : results) {
+            lineResults.add(Json.object(
+                "line", result.getLineNumber(),
+                "ingredientId", result.getIngredientId(),
+                "received", result.isReceived(),
+                "batchId", result.isReceived() ? result.getBatchId() : null,
+                "stockAfter", result.isReceived() ? result.getStockAfter() : null,
+                "message", result.getMessage()));
+        }
+        if (!received && error != null && error.getKind() != DataAccessError.Kind.INVALID_INPUT) {
+            throw new ApiException(statusFor(error), error.getMessage());
+        }
+        // Rejected lines are reported per line rather than as a bare error
+        return Json.object("received", received, "lines", lineResults);
+    }
+
+    private Object ingredients(List<Ingredient> ingredients) {
+        List<Object> result = new ArrayList<>();
+        for (Ingredient ingredient : ingredients) {
+            result.add(Json.object(
+                "ingredientId", ingredient.getIngredientId(),
+                "name", ingredient.getName(),
+                "unit", ingredient.getUnitName(),
+                "quantityInStock", ingredient.getQuantityInStock(),
+                "minimumStockLevel", ingredient.getMinimumStockLevel(),
+                "costPerUnit", ingredient.getCostPerUnit(),
+                "lowStock", ingredient.isLowStock()));
+        }
+        return result;
+    }
+
+    private Object reorderSuggestions(List<ReorderSuggestion> suggestions) {
+        List<Object> result = new ArrayList<>();
+        for (ReorderSuggestion suggestion : suggestions) {
+            result.add(Json.object(
+                "ingredientId", suggestion.getIngredientId(),
+                "name", suggestion.getIngredientName(),
+                "unit", suggestion.getUnitName(),
+                "quantityInStock", suggestion.getQuantityInStock(),
+                "dailyUsage", suggestion.getDailyUsage(),
+                "reorderPoint", suggestion.getReorderPoint(),
+                "suggestedQuantity", suggestion.getSuggestedQuantity(),
+                "supplierId", suggestion.getSupplierId() != 0 ? suggestion.getSupplierId() : null,
+                "supplierName", suggestion.getSupplierName(),
+                "leadTimeDays", suggestion.getLeadTimeDays(),
+                "estimatedCost", suggestion.getEstimatedCost()));
+        }
+        return result;
+    }
+
+    private Object report(Report report, Map<String, String> query) {
+        ReportPeriod period;
+        try {
+            period = ReportPeriod.of(parseInt(query, "year", 0), parseInt(query, "month", 0), parseInt(query, "day", 0));
+        } catch (DateTimeException e) {
+            throw new ApiException(400, "Invalid report date: " + e.getMessage());
+        }
+        DefaultTableModel model = new DefaultTableModel(report.columns, 0);
+        report.generator.accept(period, model);
+        DataAccessError error = ErrorChannel.takeLastError();
+        if (error != null) {
+            throw new ApiException(statusFor(error), error.getMessage());
+        }
+
+        List<Object> rows = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            List<Object> values = new ArrayList<>();
+            for (int column = 0; column < model.getColumnCount(); column++) {
+                values.add(model.getValueAt(row, column));
+            }
+            rows.add(values);
+        }
+        return Json.object("columns", Arrays.asList(report.columns), "rows", rows);
+    }
+
+    private Object metrics() {
+        List<Object> operations = new ArrayList<>();
+        for (QueryMetrics.OperationSnapshot op : controller.getQueryMetrics()) {
+            operations.add(Json.object(
+                "operation", op.getOperation(),
+                "calls", op.getCalls(),
+                "errors", op.getErrors(),
+                "rows", op.getRows(),
+                "meanMillis", op.getMeanMillis(),
+                "p95Millis", op.getP95Millis(),
+                "p99Millis", op.getP99Millis(),
+                "maxMillis", op.getMaxMillis()));
+        }
+        ConnectionPool.PoolStatistics pool = DatabaseConnection.getPoolStatistics();
+        return Json.object("operations", operations, "pool", pool == null ? null : pool.toString());
+    }
+
+    private static Map<String, Object> orderJson(Order order) {
+        List<Object> items = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            items.add(Json.object(
+                "dishId", item.getDishId(),
+                "dishName", item.getDishName(),
+                "quantity", item.getQuantity(),
+                "priceAtTime", item.getPriceAtTime()));
+        }
+        return Json.object(
+            "orderId", order.getOrderId(),
+            "customerId", order.getCustomerId(),
+            "customerName", order.getCustomerName(),
+            "orderDateTime", order.getOrderDateTime(),
+            "orderType", order.getOrderType(),
+            "orderStatus", order.getOrderStatus(),
+            "paymentStatus", order.getPaymentStatus(),
+            "paymentMethod", order.getPaymentMethod(),
+            "totalAmount", order.getTotalAmount(),
+            "items", items,
+            "employeeIds", order.getAssignedEmployees());
+    }
+
+    // Turns the error the failed call reported into a response
+    private static ApiException failure(String fallbackMessage) {
+        DataAccessError error = ErrorChannel.takeLastError();
+        if (error == null) {
+            return new ApiException(500, fallbackMessage);
+        }
+        return new ApiException(statusFor(error), error.getMessage());
+    }
+
+    private static int statusFor(DataAccessError error) {
+        return switch (error.getKind()) {
+            case INVALID_INPUT -> 400;
+            case REJECTED, INSUFFICIENT_STOCK -> 409;
+            case CONNECTION -> 503;
+            case DATABASE -> 500;
+        };
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Use " + expected);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        String text;
+        try (InputStream in = exchange.getRequestBody()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try {
+            if (Json.parse(text) instanceof Map<?, ?> body) {
+                return (Map<String, Object>) body;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid JSON: " + e.getMessage());
+        }
+        throw new ApiException(400, "Request body must be a JSON object");
+    }
+
+    private static int requireInt(Map<String, Object> fields, String name) {
+        if (!(fields.get(name) instanceof Double number) || number != Math.floor(number)) {
+            throw new ApiException(400, name + " must be a whole number");
+        }
+        return number.intValue();
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "No such order: " + text);
+        }
+    }
+
+    private static int parseInt(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a number");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static class ApiException extends RuntimeException {
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class Report {
+        private final BiConsumer<ReportPeriod, DefaultTableModel> generator;
+        private final String[] columns;
+
+        Report(BiConsumer<ReportPeriod, DefaultTableModel> generator, String... columns) {
+            this.generator = generator;
+            this.columns = columns;
+        }
+    }
+
+    // Usage: java server.ApiServer [--port 8080] [--threads 32] [--group-commit 2] [--stock-ledger true]
+    // --group-commit batches orders placed within that many milliseconds into one transaction;
+    // --stock-ledger takes stock in memory instead of locking Ingredients rows
+    // Connects like the application (see the restaurant.db.* properties in DatabaseConnection)
+    public static void main(String[] args) throws IOException, SQLException {
+        String bindAddress = DEFAULT_BIND_ADDRESS;
+        int port = DEFAULT_PORT;
+        int threads = DEFAULT_THREADS;
+        long groupCommitMillis = -1;
+        boolean stockLedger = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--bind" -> bindAddress = args[i + 1];
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--group-commit" -> groupCommitMillis = Long.parseLong(args[i + 1]);
+                case "--stock-ledger" -> stockLedger = Boolean.parseBoolean(args[i + 1]);
+                default -> {
+                    System.err.println("Usage: java server.ApiServer [--bind 127.0.0.1] [--port 8080] [--threads 32] "
+                        + "[--group-commit 2] [--stock-ledger true]");
+                    System.exit(1);
+                }
+            }
+        }
+
+        RestaurantController controller = new RestaurantController();
+        if (groupCommitMillis >= 0) {
+            // At most one order in flight per request thread
+            controller.enableGroupCommit(groupCommitMillis, threads);
+        }
+        if (stockLedger) {
+            controller.enableStockLedger();
+        }
+        ApiServer apiServer = new ApiServer(controller, bindAddress, port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            apiServer.stop();
+            controller.disableGroupCommit();
+            controller.disableStockLedger();
+            BackgroundExecutor.shutdown();
+            DatabaseConnection.closeConnection();
+        }, "api-shutdown"));
+        apiServer.start();
+        System.out.println("Restaurant API listening on " + bindAddress + ":" + apiServer.getPort());
+    }
+}
@@ -0,0 +1,249 @@
+package server;
+
+import java.util.*;
+
+// Just enough JSON for the API: writes maps, collections, strings, numbers, booleans and null,
+// and parses request bodies into the same types (numbers come back as Double).
+public class Json {
+    private Json() {
+    }
+
+    // Builds an object from alternating keys and values, keeping their order
+    public static Map<String, Object> object(Object... keysAndValues) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            object.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return object;
+    }
+
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+
+    private static void write(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String text) {
+            writeString(out, text);
+        } else if (value instanceof Double number && (number.isNaN() || number.isInfinite())) {
+            out.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                write(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            out.append('[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                write(out, element);
+            }
+            out.append(']');
+        } else if (value instanceof Object[] array) {
+            write(out, Arrays.asList(array));
+        } else {
+            // Dates and timestamps go out in their SQL form, e.g. 2025-03-14 12:30:00.0
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    public static Object parse(String text) {
+        Parser parser = new Parser(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position < text.length()) {
+            throw new IllegalArgumentException("Unexpected content after JSON value at " + parser.position);
+        }
+        return value;
+    }
+
+    private static class Parser {
+        private final String text;
+        private int position = 0;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+            char c = text.charAt(position);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    expect("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    expect("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    expect("null");
+                    return null;
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw new IllegalArgumentException("Expected a field name at " + position);
+                }
+                String key = readString();
+                skipWhitespace();
+                expect(":");
+                object.put(key, readValue());
+                skipWhitespace();
+                char next = next();
+                if (next == '}') {
+                    return object;
+                } else if (next != ',') {
+                    throw new IllegalArgumentException("Expected ',' or '}' at " + (position - 1));
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipWhitespace();
+                char next = next();
+                if (next == ']') {
+                    return array;
+                } else if (next != ',') {
+                    throw new IllegalArgumentException("Expected ',' or ']' at " + (position - 1));
+                }
+            }
+        }
+
+        private String readString() {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Bad unicode escape at " + position);
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+        }
+
+        private Double readNumber() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("Unexpected character at " + position);
+            }
+            return Double.parseDouble(text.substring(start, position));
+        }
+
+        private void expect(String literal) {
+            if (!text.startsWith(literal, position)) {
+                throw new IllegalArgumentException("Expected " + literal + " at " + position);
+            }
+            position += literal.length();
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
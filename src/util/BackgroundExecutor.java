@@ -0,0 +1,71 @@
+package util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Shared worker threads for database calls made on behalf of the UI, so the Event Dispatch Thread never blocks on JDBC
+public class BackgroundExecutor {
+    // Kept below the connection pool size so background loads can never starve order placement of connections
+    private static final int WORKER_THREADS = 4;
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "background-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private BackgroundExecutor() {
+    }
+
+    // Cancelling the returned future with mayInterruptIfRunning also cancels the task: a queued task never
+    // starts, and a running one has its worker thread interrupted
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        TaskFuture<T> future = new TaskFuture<>();
+        future.setTask(executor.submit(() -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class TaskFuture<T> extends CompletableFuture<T> {
+        private volatile Future<?> task;
+        private volatile boolean interrupt;
+
+        void setTask(Future<?> task) {
+            this.task = task;
+            // Cancelled before submit returned
+            if (isCancelled()) {
+                task.cancel(interrupt);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            interrupt = mayInterruptIfRunning;
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> running = task;
+            if (cancelled && running != null) {
+                running.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+    }
+}
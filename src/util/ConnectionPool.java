@@ -0,0 +1,424 @@
+package util;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+public class ConnectionPool implements DataSource {
+    // Connections used within this window are handed out again without a validation round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+
+    // One permit per connection that may be leased; bounds the pool size
+    private final Semaphore permits;
+    // Most recently returned connection sits at the head, so the tail ages out first
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger threadsAwaiting = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private int loginTimeout = 0;
+    private PrintWriter logWriter;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long maxWaitMillis, long idleTimeoutMillis, long evictionIntervalMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be greater than 0");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictIdleConnections,
+            evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        threadsAwaiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            threadsAwaiting.decrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + maxWaitMillis +
+                " ms waiting for a database connection (" + maxSize + " in use)");
+        }
+
+        try {
+            while (true) {
+                PooledConnection pooled = pollIdle();
+                if (pooled == null) {
+                    pooled = createConnection();
+                } else if (!validate(pooled)) {
+                    validationFailureCount.incrementAndGet();
+                    destroy(pooled);
+                    continue;
+                }
+                borrowCount.incrementAndGet();
+                return pooled.lease();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    public PoolStatistics getStatistics() {
+        int idleNow;
+        synchronized (idle) {
+            idleNow = idle.size();
+        }
+        int total = totalConnections.get();
+        long borrows = borrowCount.get();
+        return new PoolStatistics(
+            maxSize,
+            total,
+            idleNow,
+            total - idleNow,
+            threadsAwaiting.get(),
+            borrows,
+            createdCount.get(),
+            destroyedCount.get(),
+            timeoutCount.get(),
+            validationFailureCount.get(),
+            evictedCount.get(),
+            borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / borrows
+        );
+    }
+
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> toClose;
+        synchronized (idle) {
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    public boolean isShutdown() {
+        return closed;
+    }
+
+    private PooledConnection pollIdle() {
+        synchronized (idle) {
+            return idle.pollFirst();
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        physical.setAutoCommit(true);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean validate(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastReturned < VALIDATION_BYPASS_MILLIS) {
+                return true;
+            }
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.broken && !pooled.physical.isClosed();
+            if (reusable) {
+                // Leave the connection the way the next borrower expects to find it
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                if (pooled.physical.isReadOnly()) {
+                    pooled.physical.setReadOnly(false);
+                }
+                pooled.physical.clearWarnings();
+            }
+            if (reusable) {
+                pooled.lastReturned = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > minIdle) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.lastReturned >= idleTimeoutMillis) {
+                    it.remove();
+                    expired.add(pooled);
+                }
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            evictedCount.incrementAndGet();
+            destroy(pooled);
+        }
+    }
+
+    // A physical connection owned by the pool. Callers only ever see a lease proxy around it.
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturned = System.currentTimeMillis();
+        private volatile boolean broken = false;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new Lease(this));
+        }
+    }
+
+    // Returned to the caller; close() gives the connection back instead of closing the socket
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned) {
+                            return null;
+                        }
+                        returned = true;
+                    }
+                    release(pooled);
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException) {
+                    String state = sqlException.getSQLState();
+                    // SQLSTATE class 08 means the connection itself failed
+                    if (state != null && state.startsWith("08")) {
+                        pooled.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    public static class PoolStatistics {
+        private final int maxSize;
+        private final int totalConnections;
+        private final int idleConnections;
+        private final int activeConnections;
+        private final int threadsAwaiting;
+        private final long borrowCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long timeoutCount;
+        private final long validationFailureCount;
+        private final long evictedCount;
+        private final double averageWaitMillis;
+
+        public PoolStatistics(int maxSize, int totalConnections, int idleConnections, int activeConnections,
+                              int threadsAwaiting, long borrowCount, long createdCount, long destroyedCount,
+                              long timeoutCount, long validationFailureCount, long evictedCount,
+                              double averageWaitMillis) {
+            this.maxSize = maxSize;
+            this.totalConnections = totalConnections;
+            this.idleConnections = idleConnections;
+            this.activeConnections = activeConnections;
+            this.threadsAwaiting = threadsAwaiting;
+            this.borrowCount = borrowCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.timeoutCount = timeoutCount;
+            this.validationFailureCount = validationFailureCount;
+            this.evictedCount = evictedCount;
+            this.averageWaitMillis = averageWaitMillis;
+        }
+
+        // Getters
+        public int getMaxSize() { return maxSize; }
+        public int getTotalConnections() { return totalConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getThreadsAwaiting() { return threadsAwaiting; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public long getEvictedCount() { return evictedCount; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "Pool[max=%d, total=%d, idle=%d, active=%d, waiting=%d, borrowed=%d, created=%d, " +
+                "destroyed=%d, timeouts=%d, validationFailures=%d, evicted=%d, avgWait=%.2fms]",
+                maxSize, totalConnections, idleConnections, activeConnections, threadsAwaiting,
+                borrowCount, createdCount, destroyedCount, timeoutCount, validationFailureCount,
+                evictedCount, averageWaitMillis);
+        }
+    }
+
+    // DataSource plumbing
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,40 @@
+package util;
+
+// A failure in the data-access layer. DAOs and the controller report these through ErrorChannel and
+// return their usual failure value (false, -1, null or an empty list); the caller decides what to show.
+public class DataAccessError {
+    public enum Kind {
+        // The database could not be reached or the statement failed
+        DATABASE,
+        // The application could not connect at all (wrong password, missing schema or driver)
+        CONNECTION,
+        // The input was rejected before reaching the database
+        INVALID_INPUT,
+        // A business rule refused the change, e.g. deleting a customer who has orders
+        REJECTED,
+        // An order needs more of an ingredient than is in stock
+        INSUFFICIENT_STOCK
+    }
+
+    private final Kind kind;
+    private final String title;
+    private final String message;
+    private final Throwable cause;
+
+    public DataAccessError(Kind kind, String title, String message, Throwable cause) {
+        this.kind = kind;
+        this.title = title;
+        this.message = message;
+        this.cause = cause;
+    }
+
+    public Kind getKind() { return kind; }
+    public String getTitle() { return title; }
+    public String getMessage() { return message; }
+    public Throwable getCause() { return cause; }
+
+    @Override
+    public String toString() {
+        return kind + " [" + title + "] " + message;
+    }
+}
@@ -0,0 +1,92 @@
+package util;
+
+// Where the data-access layer sends its errors instead of opening dialogs itself, so DAOs never block
+// the calling thread and can run headless. The UI installs a listener that presents errors (see
+// MainFrame); without one they are logged to stderr. The most recent error on each thread is also kept,
+// so a caller that got false or -1 back can find out why.
+public class ErrorChannel {
+    public interface Listener {
+        // Called on the thread that hit the error; must not block
+        void errorReported(DataAccessError error);
+    }
+
+    private static final Listener LOG_TO_STDERR = error -> System.err.println(error);
+
+    private static volatile Listener listener = LOG_TO_STDERR;
+    private static final ThreadLocal<DataAccessError> lastError = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> held = ThreadLocal.withInitial(() -> false);
+
+    private ErrorChannel() {
+    }
+
+    // Passing null restores logging to stderr
+    public static void setListener(Listener newListener) {
+        listener = newListener != null ? newListener : LOG_TO_STDERR;
+    }
+
+    // Work that was interrupted (e.g. a load cancelled while waiting for a pooled connection) failed on
+    // purpose; its error is kept for takeLastError but nobody is shown it
+    public static void report(DataAccessError error) {
+        lastError.set(error);
+        if (!held.get() && !interrupted(error)) {
+            listener.errorReported(error);
+        }
+    }
+
+    private static boolean interrupted(DataAccessError error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = error.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Until releaseNotifications, errors reported on this thread are kept for takeLastError but not passed
+    // to the listener, for work that may be thrown away and retried. The caller reports the ones that count.
+    public static void holdNotifications() {
+        held.set(true);
+    }
+
+    public static void releaseNotifications() {
+        held.set(false);
+    }
+
+    public static void databaseError(String message, String title, Throwable cause) {
+        report(new DataAccessError(DataAccessError.Kind.DATABASE, title, message, cause));
+    }
+
+    public static void connectionError(String message, String title, Throwable cause) {
+        report(new DataAccessError(DataAccessError.Kind.CONNECTION, title, message, cause));
+    }
+
+    public static void invalidInput(String message, String title) {
+        report(new DataAccessError(DataAccessError.Kind.INVALID_INPUT, title, message, null));
+    }
+
+    public static void rejected(String message, String title) {
+        report(new DataAccessError(DataAccessError.Kind.REJECTED, title, message, null));
+    }
+
+    public static void insufficientStock(String message, String title) {
+        report(new DataAccessError(DataAccessError.Kind.INSUFFICIENT_STOCK, title, message, null));
+    }
+
+    // Hands an error that was reported on a worker thread back to the thread waiting on that work,
+    // without notifying the listener a second time
+    public static void restore(DataAccessError error) {
+        if (error != null) {
+            lastError.set(error);
+        }
+    }
+
+    // The last error reported on this thread, or null; reading it clears it
+    public static DataAccessError takeLastError() {
+        DataAccessError error = lastError.get();
+        lastError.remove();
+        return error;
+    }
+}
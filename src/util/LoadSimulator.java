@@ -0,0 +1,528 @@
+package util;
+
+import controller.RestaurantController;
+import model.Dish;
+import model.Order;
+import model.OrderItem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Headless load test of the point-of-sale path. Each simulated terminal rings up orders the way a
+// cashier does: createOrder, getOrderById to show the bill, then processPayment. Arrivals follow a
+// Poisson process whose rate can jump for rush-hour bursts; latency is measured from when a customer
+// arrived, not from when a terminal got round to them, so a backlog shows up in the numbers.
+// Afterwards the stock ledger is checked: every ingredient must have moved by exactly what its
+// transactions say, and none may have gone negative.
+public class LoadSimulator {
+    private static final String[] PAYMENT_METHODS = {"Cash", "Credit Card"};
+    private static final int MAX_LINES_PER_ORDER = 3;
+    private static final int CUSTOMER_SAMPLE = 1000;
+
+    private enum Operation {
+        CREATE_ORDER("createOrder"),
+        GET_ORDER("getOrderById"),
+        PROCESS_PAYMENT("processPayment"),
+        TRANSACTION("Whole sale");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final RestaurantController controller;
+    private final int terminals;
+    private final long durationSeconds;
+    private final ArrivalProfile profile;
+    private final long seed;
+
+    private List<Dish> dishes;
+    private int[] customerIds;
+    private int[] employeeIds;
+
+    public LoadSimulator(RestaurantController controller, int terminals, long durationSeconds,
+                         ArrivalProfile profile, long seed) {
+        this.controller = controller;
+        this.terminals = terminals;
+        this.durationSeconds = durationSeconds;
+        this.profile = profile;
+        this.seed = seed;
+    }
+
+    public Report run() throws SQLException, InterruptedException {
+        loadReferenceData();
+        StockLedger ledger = StockLedger.capture(controller);
+        long deadlocksBefore = readInnoDbMetric("lock_deadlocks");
+        long lockTimeoutsBefore = readInnoDbMetric("lock_timeouts");
+
+        // One platform thread per terminal; terminals beyond the connection pool size queue for connections,
+        // which is exactly the contention this is meant to expose
+        AtomicInteger terminalCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(terminals, task -> {
+            Thread thread = new Thread(task, "terminal-" + terminalCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<Future<Terminal>> futures = new ArrayList<>();
+        for (int i = 0; i < terminals; i++) {
+            Terminal terminal = new Terminal(new Random(seed + i), start, end);
+            futures.add(executor.submit(() -> {
+                terminal.run();
+                return terminal;
+            }));
+        }
+
+        Report report = new Report();
+        for (Future<Terminal> future : futures) {
+            try {
+                report.merge(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Terminal crashed", e.getCause());
+            }
+        }
+        executor.shutdown();
+        report.elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report.deadlocks = difference(deadlocksBefore, readInnoDbMetric("lock_deadlocks"));
+        report.lockTimeouts = difference(lockTimeoutsBefore, readInnoDbMetric("lock_timeouts"));
+        // Let the in-memory stock ledger (if on) catch Ingredients up before checking it
+        controller.flushStockLedger();
+        ledger.verify(controller, report);
+        report.poolStatistics = DatabaseConnection.getPoolStatistics();
+        return report;
+    }
+
+    private void loadReferenceData() throws SQLException {
+        dishes = new ArrayList<>();
+        for (Dish dish : controller.getAllDishes()) {
+            if (dish.isAvailable()) {
+                dishes.add(dish);
+            }
+        }
+        if (dishes.isEmpty()) {
+            throw new IllegalStateException("No available dishes to order");
+        }
+        customerIds = queryIds("SELECT customer_id FROM Customers WHERE is_deleted = FALSE ORDER BY customer_id LIMIT "
+            + CUSTOMER_SAMPLE);
+        employeeIds = queryIds("SELECT employee_id FROM Employees WHERE is_deleted = FALSE ORDER BY employee_id");
+        if (customerIds.length == 0 || employeeIds.length == 0) {
+            throw new IllegalStateException("Load simulation needs at least one customer and one employee");
+        }
+    }
+
+    private int[] queryIds(String query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = controller.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Server-wide InnoDB counter, or -1 where the server does not expose it
+    private long readInnoDbMetric(String name) {
+        try (Connection conn = controller.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT `COUNT` FROM information_schema.INNODB_METRICS WHERE NAME = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    private static long difference(long before, long after) {
+        return before < 0 || after < 0 ? -1 : after - before;
+    }
+
+    private class Terminal {
+        private final Random random;
+        private final long start;
+        private final long end;
+        private final LatencyLog[] latencies = new LatencyLog[Operation.values().length];
+        private final long[] failures = new long[Operation.values().length];
+        private final Map<String, Integer> failureReasons = new HashMap<>();
+
+        Terminal(Random random, long start, long end) {
+            this.random = random;
+            this.start = start;
+            this.end = end;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyLog();
+            }
+        }
+
+        void run() {
+            double scheduledSeconds = 0;
+            while (true) {
+                long arrival;
+                if (profile.isClosedLoop()) {
+                    arrival = System.nanoTime();
+                } else {
+                    // This terminal's share of the arrival rate at the current point of the run
+                    double rate = profile.rateAt(scheduledSeconds) / terminals;
+                    scheduledSeconds += -Math.log(1 - random.nextDouble()) / rate;
+                    arrival = start + (long) (scheduledSeconds * 1e9);
+                    long wait;
+                    while (arrival < end && (wait = arrival - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                if (arrival >= end || System.nanoTime() >= end) {
+                    return;
+                }
+                ringUpSale(arrival);
+            }
+        }
+
+        private void ringUpSale(long arrival) {
+            Order order = new Order();
+            order.setCustomerId(customerIds[random.nextInt(customerIds.length)]);
+            order.setOrderType(random.nextBoolean() ? "Dine-In" : "Takeout");
+            order.setOrderStatus("In Progress");
+            order.setPaymentStatus("Pending");
+            List<OrderItem> items = new ArrayList<>();
+            Set<Integer> chosen = new HashSet<>();
+            int lines = 1 + random.nextInt(Math.min(MAX_LINES_PER_ORDER, dishes.size()));
+            double total = 0;
+            while (items.size() < lines) {
+                Dish dish = dishes.get(random.nextInt(dishes.size()));
+                if (chosen.add(dish.getDishId())) {
+                    int quantity = 1 + random.nextInt(2);
+                    items.add(new OrderItem(0, dish.getDishId(), quantity, dish.getSellingPrice()));
+                    total += quantity * dish.getSellingPrice();
+                }
+            }
+            order.setTotalAmount(total);
+            List<Integer> staff = new ArrayList<>(List.of(employeeIds[random.nextInt(employeeIds.length)]));
+
+            if (!call(Operation.CREATE_ORDER, () -> controller.createOrder(order, items, staff))) {
+                failures[Operation.TRANSACTION.ordinal()]++;
+                return;
+            }
+            int orderId = order.getOrderId();
+            if (!call(Operation.GET_ORDER, () -> controller.getOrderById(orderId) != null)) {
+                failures[Operation.TRANSACTION.ordinal()]++;
+                return;
+            }
+            double amount = total;
+            String method = PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)];
+            if (!call(Operation.PROCESS_PAYMENT, () -> controller.processPayment(orderId, amount, method))) {
+                failures[Operation.TRANSACTION.ordinal()]++;
+                return;
+            }
+            latencies[Operation.TRANSACTION.ordinal()].add(System.nanoTime() - arrival);
+        }
+
+        // Times one controller call; a false result or an exception counts as a failure,
+        // classified by the error the data-access layer reported for it
+        private boolean call(Operation operation, BooleanSupplier action) {
+            ErrorChannel.takeLastError();
+            long callStart = System.nanoTime();
+            boolean succeeded;
+            String reason = null;
+            try {
+                succeeded = action.getAsBoolean();
+            } catch (RuntimeException e) {
+                reason = e.getClass().getSimpleName();
+                succeeded = false;
+            }
+            if (succeeded) {
+                latencies[operation.ordinal()].add(System.nanoTime() - callStart);
+            } else {
+                failures[operation.ordinal()]++;
+                DataAccessError error = ErrorChannel.takeLastError();
+                if (reason == null) {
+                    reason = error != null ? error.getKind().name() : "UNREPORTED";
+                }
+                failureReasons.merge(operation.label + ": " + reason, 1, Integer::sum);
+            }
+            return succeeded;
+        }
+    }
+
+    // Stock and transaction log at the start of the run, to check the run against
+    private static class StockLedger {
+        private final Map<Integer, Double> stock;
+        private final long lastTransactionId;
+
+        private StockLedger(Map<Integer, Double> stock, long lastTransactionId) {
+            this.stock = stock;
+            this.lastTransactionId = lastTransactionId;
+        }
+
+        static StockLedger capture(RestaurantController controller) throws SQLException {
+            try (Connection conn = controller.getConnection()) {
+                return new StockLedger(readStock(conn), readLastTransactionId(conn));
+            }
+        }
+
+        // Stock that moved differently from its transactions means an order was lost or oversold
+        void verify(RestaurantController controller, Report report) throws SQLException {
+            try (Connection conn = controller.getConnection()) {
+                Map<Integer, Double> stockAfter = readStock(conn);
+                Map<Integer, Double> logged = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT ingredient_id, SUM(quantity_change) AS total_change
+                    FROM IngredientTransactions
+                    WHERE transaction_id > ?
+                    GROUP BY ingredient_id
+                """)) {
+                    stmt.setLong(1, lastTransactionId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            logged.put(rs.getInt("ingredient_id"), rs.getDouble("total_change"));
+                        }
+                    }
+                }
+                for (Map.Entry<Integer, Double> entry : stockAfter.entrySet()) {
+                    double before = stock.getOrDefault(entry.getKey(), 0.0);
+                    double expected = before + logged.getOrDefault(entry.getKey(), 0.0);
+                    if (entry.getValue() < 0) {
+                        report.negativeStock++;
+                    }
+                    if (Math.abs(entry.getValue() - expected) > 0.005) {
+                        report.ledgerMismatches++;
+                    }
+                }
+            }
+        }
+
+        private static Map<Integer, Double> readStock(Connection conn) throws SQLException {
+            Map<Integer, Double> stock = new HashMap<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT ingredient_id, quantity_in_stock FROM Ingredients")) {
+                while (rs.next()) {
+                    stock.put(rs.getInt("ingredient_id"), rs.getDouble("quantity_in_stock"));
+                }
+            }
+            return stock;
+        }
+
+        private static long readLastTransactionId(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(transaction_id), 0) FROM IngredientTransactions")) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    // Arrival rate over the run: a steady rate with optional periodic rush-hour bursts.
+    // A steady rate of 0 means closed loop: every terminal starts the next sale as soon as one finishes.
+    public static class ArrivalProfile {
+        private final double steadyRate;
+        private final double rushRate;
+        private final double rushEverySeconds;
+        private final double rushLengthSeconds;
+
+        public ArrivalProfile(double steadyRate, double rushRate, double rushEverySeconds, double rushLengthSeconds) {
+            this.steadyRate = steadyRate;
+            this.rushRate = rushRate;
+            this.rushEverySeconds = rushEverySeconds;
+            this.rushLengthSeconds = rushLengthSeconds;
+        }
+
+        public static ArrivalProfile steady(double ordersPerSecond) {
+            return new ArrivalProfile(ordersPerSecond, ordersPerSecond, 0, 0);
+        }
+
+        public static ArrivalProfile closedLoop() {
+            return new ArrivalProfile(0, 0, 0, 0);
+        }
+
+        boolean isClosedLoop() {
+            return steadyRate <= 0;
+        }
+
+        // Each period ends with its rush, so a run starts in steady state
+        double rateAt(double elapsedSeconds) {
+            if (rushEverySeconds <= 0 || rushLengthSeconds <= 0) {
+                return steadyRate;
+            }
+            double intoPeriod = elapsedSeconds % rushEverySeconds;
+            return intoPeriod >= rushEverySeconds - rushLengthSeconds ? rushRate : steadyRate;
+        }
+
+        @Override
+        public String toString() {
+            if (isClosedLoop()) {
+                return "closed loop";
+            }
+            if (rushEverySeconds <= 0 || rushLengthSeconds <= 0) {
+                return String.format("steady %.1f/s", steadyRate);
+            }
+            return String.format("steady %.1f/s, rush %.1f/s for %.0fs every %.0fs",
+                steadyRate, rushRate, rushLengthSeconds, rushEverySeconds);
+        }
+    }
+
+    public static class Report {
+        private final LatencyLog[] latencies = new LatencyLog[Operation.values().length];
+        private final long[] failures = new long[Operation.values().length];
+        private final Map<String, Integer> failureReasons = new TreeMap<>();
+        private double elapsedSeconds;
+        private long deadlocks;
+        private long lockTimeouts;
+        private int negativeStock;
+        private int ledgerMismatches;
+        private ConnectionPool.PoolStatistics poolStatistics;
+
+        Report() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyLog();
+            }
+        }
+
+        private void merge(Terminal terminal) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].addAll(terminal.latencies[i]);
+                failures[i] += terminal.failures[i];
+            }
+            terminal.failureReasons.forEach((reason, count) -> failureReasons.merge(reason, count, Integer::sum));
+        }
+
+        public long getCompletedSales() { return latencies[Operation.TRANSACTION.ordinal()].size(); }
+        public long getFailedOrders() { return failures[Operation.CREATE_ORDER.ordinal()]; }
+        public long getFailedSales() { return failures[Operation.TRANSACTION.ordinal()]; }
+        public double getThroughput() { return getCompletedSales() / elapsedSeconds; }
+        public long getDeadlocks() { return deadlocks; }
+        public long getLockTimeouts() { return lockTimeouts; }
+        public int getNegativeStock() { return negativeStock; }
+        public int getLedgerMismatches() { return ledgerMismatches; }
+
+        public String format() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("Elapsed %.1f s, %d sales completed (%.1f/s), %d failed%n%n",
+                elapsedSeconds, getCompletedSales(), getThroughput(), getFailedSales()));
+            report.append(String.format("%-16s %9s %8s %9s %9s %9s %9s%n",
+                "Operation", "OK", "Failed", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+            for (Operation operation : Operation.values()) {
+                LatencyLog log = latencies[operation.ordinal()];
+                report.append(String.format("%-16s %9d %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.label, log.size(), failures[operation.ordinal()],
+                    log.percentileMillis(0.50), log.percentileMillis(0.95),
+                    log.percentileMillis(0.99), log.percentileMillis(1.0)));
+            }
+            report.append('\n');
+            report.append("Failed orders:        ").append(getFailedOrders()).append('\n');
+            report.append("Deadlocks:            ").append(deadlocks < 0 ? "n/a" : deadlocks).append('\n');
+            report.append("Lock wait timeouts:   ").append(lockTimeouts < 0 ? "n/a" : lockTimeouts).append('\n');
+            report.append("Negative stock:       ").append(negativeStock).append(" ingredient(s)\n");
+            report.append("Ledger mismatches:    ").append(ledgerMismatches).append(" ingredient(s)\n");
+            if (!failureReasons.isEmpty()) {
+                report.append("Failure reasons:      ").append(failureReasons).append('\n');
+            }
+            if (poolStatistics != null) {
+                report.append("Connection pool:      ").append(poolStatistics).append('\n');
+            }
+            return report.toString();
+        }
+    }
+
+    // Every latency sample of one operation, in nanoseconds; percentiles are exact
+    private static class LatencyLog {
+        private long[] values = new long[1024];
+        private int size = 0;
+        private boolean sorted = true;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            sorted = false;
+        }
+
+        void addAll(LatencyLog other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        double percentileMillis(double fraction) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(fraction * size);
+            return values[Math.max(rank, 1) - 1] / 1_000_000.0;
+        }
+    }
+
+    // Usage: java util.LoadSimulator [--terminals 8] [--duration 60] [--rate 20]
+    //                                [--rush-rate 80] [--rush-every 60] [--rush-length 15] [--seed 42]
+    //                                [--group-commit 2] [--stock-ledger true]
+    // --rate 0 runs closed loop. --group-commit batches orders arriving within that many milliseconds
+    // into one transaction, --stock-ledger takes stock in memory instead of locking Ingredients (both off
+    // by default). Connects like the application (see the restaurant.db.* properties).
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                System.err.println("Unexpected argument: " + args[i]);
+                System.exit(1);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int terminals = Integer.parseInt(options.getOrDefault("terminals", "8"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "60"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        ArrivalProfile profile = new ArrivalProfile(rate,
+            Double.parseDouble(options.getOrDefault("rush-rate", String.valueOf(rate))),
+            Double.parseDouble(options.getOrDefault("rush-every", "0")),
+            Double.parseDouble(options.getOrDefault("rush-length", "0")));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        long groupCommitMillis = Long.parseLong(options.getOrDefault("group-commit", "-1"));
+        boolean stockLedger = Boolean.parseBoolean(options.getOrDefault("stock-ledger", "false"));
+
+        // Failures are counted by reason in the report rather than logged one by one
+        ErrorChannel.setListener(error -> { });
+        System.out.printf("Simulating %d terminals for %d s (%s)%n", terminals, duration, profile);
+        RestaurantController controller = new RestaurantController();
+        if (groupCommitMillis >= 0) {
+            // No more orders can be in flight than there are terminals
+            controller.enableGroupCommit(groupCommitMillis, terminals);
+        }
+        if (stockLedger) {
+            controller.enableStockLedger();
+        }
+        try {
+            Report report = new LoadSimulator(controller, terminals, duration, profile, seed).run();
+            System.out.println(report.format());
+        } finally {
+            controller.disableGroupCommit();
+            controller.disableStockLedger();
+            BackgroundExecutor.shutdown();
+            DatabaseConnection.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-operation JDBC statistics. Connections handed out by DatabaseConnection are wrapped so that every
+// statement execution is timed and attributed to the dao/controller method that created the statement
+// (e.g. "OrderDAO.deductIngredients"), along with error counts and rows read or written.
+public class QueryMetrics {
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = true;
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private QueryMetrics() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static Connection instrument(Connection connection) {
+        if (!enabled) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new ConnectionHandler(connection));
+    }
+
+    // Statistics for every operation seen since the last reset, slowest in total first
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            snapshots.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        snapshots.sort(Comparator.comparingDouble(OperationSnapshot::getTotalMillis).reversed());
+        return snapshots;
+    }
+
+    public static void reset() {
+        operations.clear();
+    }
+
+    public static String formatReport() {
+        StringBuilder report = new StringBuilder(String.format("%-45s %8s %6s %10s %9s %9s %9s %9s%n",
+            "Operation", "Calls", "Errors", "Rows", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        for (OperationSnapshot op : snapshot()) {
+            report.append(String.format("%-45s %8d %6d %10d %9.2f %9.2f %9.2f %9.2f%n",
+                op.getOperation(), op.getCalls(), op.getErrors(), op.getRows(),
+                op.getP50Millis(), op.getP95Millis(), op.getP99Millis(), op.getMaxMillis()));
+        }
+        return report.toString();
+    }
+
+    private static OperationStats statsFor(String operation) {
+        return operations.computeIfAbsent(operation, name -> new OperationStats());
+    }
+
+    // The first dao or controller frame on the stack names the operation; statements prepared
+    // elsewhere (e.g. a dialog using a controller connection) fall back to the first application frame
+    private static String currentOperation() {
+        return STACK_WALKER.walk(frames -> {
+            String fallback = null;
+            for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+                StackWalker.StackFrame frame = it.next();
+                String packageName = frame.getDeclaringClass().getPackageName();
+                if (packageName.equals("dao") || packageName.equals("controller")) {
+                    return operationName(frame);
+                }
+                if (fallback == null && isApplicationPackage(packageName)) {
+                    fallback = operationName(frame);
+                }
+            }
+            return fallback != null ? fallback : "other";
+        });
+    }
+
+    private static boolean isApplicationPackage(String packageName) {
+        return !packageName.equals("util")
+            && !packageName.startsWith("java.")
+            && !packageName.startsWith("javax.")
+            && !packageName.startsWith("jdk.")
+            && !packageName.startsWith("sun.")
+            && !packageName.startsWith("com.sun.");
+    }
+
+    private static String operationName(StackWalker.StackFrame frame) {
+        return frame.getDeclaringClass().getSimpleName() + "." + frame.getMethodName();
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof Statement statement) {
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class
+                    : Statement.class;
+                return Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(),
+                    new Class<?>[] {type},
+                    new StatementHandler(statement, statsFor(currentOperation())));
+            }
+            return result;
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final OperationStats stats;
+
+        StatementHandler(Statement target, OperationStats stats) {
+            this.target = target;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                Object result = invokeTarget(target, method, args);
+                if (name.equals("getResultSet") && result != null) {
+                    return countingResultSet((ResultSet) result);
+                }
+                return result;
+            }
+
+            long start = System.nanoTime();
+            try {
+                Object result = invokeTarget(target, method, args);
+                stats.recordCall(System.nanoTime() - start);
+                if (result instanceof ResultSet resultSet) {
+                    return countingResultSet(resultSet);
+                } else if (result instanceof Integer count) {
+                    stats.addRows(Math.max(count, 0));
+                } else if (result instanceof Long count) {
+                    stats.addRows(Math.max(count, 0));
+                } else if (result instanceof int[] counts) {
+                    for (int count : counts) {
+                        stats.addRows(Math.max(count, 0));
+                    }
+                }
+                return result;
+            } catch (Throwable e) {
+                stats.recordError(System.nanoTime() - start);
+                throw e;
+            }
+        }
+
+        private ResultSet countingResultSet(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    Object result = invokeTarget(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        stats.addRows(1);
+                    }
+                    return result;
+                });
+        }
+    }
+
+    private static class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        void recordCall(long nanos) {
+            calls.increment();
+            record(nanos);
+        }
+
+        void recordError(long nanos) {
+            calls.increment();
+            errors.increment();
+            record(nanos);
+        }
+
+        void addRows(long count) {
+            rows.add(count);
+        }
+
+        private void record(long nanos) {
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            histogram.record(nanos);
+        }
+
+        OperationSnapshot snapshot(String operation) {
+            long max = maxNanos.get();
+            // Bucket midpoints can overshoot the largest sample, so cap percentiles at the real maximum
+            return new OperationSnapshot(operation, calls.sum(), errors.sum(), rows.sum(),
+                totalNanos.sum() / 1_000_000.0,
+                Math.min(histogram.percentile(0.50), max) / 1_000_000.0,
+                Math.min(histogram.percentile(0.95), max) / 1_000_000.0,
+                Math.min(histogram.percentile(0.99), max) / 1_000_000.0,
+                max / 1_000_000.0);
+        }
+    }
+
+    // Log-linear histogram: 8 sub-buckets per power of two, so percentiles are within about 6% of the true value
+    private static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = 61 * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            counts.incrementAndGet(bucketFor(Math.max(nanos, 0)));
+        }
+
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    // Report the middle of the bucket
+                    return i == BUCKETS - 1 ? lowerBound(i) : (lowerBound(i) + lowerBound(i + 1)) / 2;
+                }
+            }
+            return lowerBound(BUCKETS - 1);
+        }
+
+        private static int bucketFor(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int subBucket = (int) ((nanos >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+            return Math.min((exponent - 2) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+        }
+
+        private static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + 2;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 3);
+        }
+    }
+
+    public static class OperationSnapshot {
+        private final String operation;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double totalMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        public OperationSnapshot(String operation, long calls, long errors, long rows, double totalMillis,
+                                 double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+            this.operation = operation;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalMillis = totalMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getOperation() { return operation; }
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public long getRows() { return rows; }
+        public double getTotalMillis() { return totalMillis; }
+        public double getMeanMillis() { return calls == 0 ? 0 : totalMillis / calls; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP95Millis() { return p95Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+    }
+}
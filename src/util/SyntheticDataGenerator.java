@@ -0,0 +1,609 @@
+package util;
+
+import dao.SalesRollupDAO;
+
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Scales the sample database up for load and performance testing. It fills Customers, Orders,
+// OrderItems, AssignedEmployeesToOrders, IngredientBatches and IngredientTransactions with a history
+// that looks like a real restaurant:
+// - orders peak at lunch and dinner and on weekends
+// - a few dishes sell far more than the rest
+// - regulars order much more often than one-off customers
+// - ingredient deliveries follow what the orders consumed
+// The same seed and settings always produce the same rows. Rows are appended after whatever is
+// already in the database, through multi-row INSERTs with constraint checks off for the session.
+public class SyntheticDataGenerator {
+    private static final int DEFAULT_ROWS_PER_STATEMENT = 1000;
+
+    // Relative order volume for each hour of the day: lunch and dinner peaks, closed overnight
+    private static final int[] HOURLY_WEIGHTS = {
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 8, 14, 10, 4, 2, 2, 5, 12, 14, 9, 4, 1, 0
+    };
+    private static final double WEEKEND_BOOST = 1.35;
+    // Index = number of lines (distinct dishes) on an order, and quantity of a line
+    private static final int[] LINES_PER_ORDER_WEIGHTS = {0, 35, 30, 20, 10, 5};
+    private static final int[] QUANTITY_WEIGHTS = {0, 70, 22, 6, 2};
+    private static final double MEAN_LINES_PER_ORDER = 2.2;
+    // Zipf exponents: how strongly sales concentrate on the top dishes and the most loyal customers
+    private static final double DISH_POPULARITY_SKEW = 1.0;
+    private static final double CUSTOMER_LOYALTY_SKEW = 0.8;
+    private static final int ORDERS_PER_CUSTOMER = 8;
+    private static final double CANCELLED_RATE = 0.03;
+    // Deliveries cover the usage until the next one plus this much safety stock
+    private static final double DELIVERY_BUFFER = 0.15;
+
+    private static final String[] ORDER_TYPES = {"Dine-In", "Takeout", "Delivery"};
+    private static final int[] ORDER_TYPE_WEIGHTS = {55, 30, 15};
+    private static final String[] FIRST_NAMES = {
+        "Maria", "Jose", "Juan", "Ana", "Mark", "Angel", "Paolo", "Bea", "Carlo", "Nicole",
+        "Miguel", "Camille", "Rafael", "Isabel", "Gabriel", "Patricia", "Daniel", "Kristine", "Joshua", "Andrea"
+    };
+    private static final String[] LAST_NAMES = {
+        "Santos", "Reyes", "Cruz", "Bautista", "Garcia", "Mendoza", "Torres", "Ramos", "Flores", "Gonzales",
+        "Aquino", "Villanueva", "Castillo", "Rivera", "Navarro", "Domingo", "Soriano", "Dela Cruz", "Lim", "Tan"
+    };
+
+    private final long seed;
+    private int orders = 100_000;
+    private int customers = 0;
+    private int historyDays = 365;
+    private LocalDate lastDay = LocalDate.now().minusDays(1);
+    private int rowsPerStatement = DEFAULT_ROWS_PER_STATEMENT;
+    private boolean usageTransactions = true;
+
+    public SyntheticDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setOrders(int orders) {
+        this.orders = orders;
+    }
+
+    // Sizes the run by order lines instead, e.g. 10M lines is about 4.5M orders
+    public void setOrderLines(long orderLines) {
+        this.orders = (int) Math.ceil(orderLines / MEAN_LINES_PER_ORDER);
+    }
+
+    // 0 (the default) means one customer per ORDERS_PER_CUSTOMER orders
+    public void setCustomers(int customers) {
+        this.customers = customers;
+    }
+
+    public void setHistoryDays(int historyDays) {
+        this.historyDays = historyDays;
+    }
+
+    // Defaults to yesterday, so every generated order is finished; fix it for byte-identical reruns
+    public void setLastDay(LocalDate lastDay) {
+        this.lastDay = lastDay;
+    }
+
+    public void setRowsPerStatement(int rowsPerStatement) {
+        this.rowsPerStatement = rowsPerStatement;
+    }
+
+    // Usage transactions (one per ingredient per order, as OrderDAO writes them) are the largest table by far
+    public void setUsageTransactions(boolean usageTransactions) {
+        this.usageTransactions = usageTransactions;
+    }
+
+    public Summary generate(Connection conn) throws SQLException {
+        boolean originalAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET foreign_key_checks = 0, unique_checks = 0");
+            try {
+                Summary summary = new Summary();
+                ReferenceData reference = new ReferenceData(conn);
+                int customerCount = customers > 0 ? customers : Math.max(1, orders / ORDERS_PER_CUSTOMER);
+                int firstCustomerId = nextId(conn, "Customers", "customer_id");
+
+                insertCustomers(conn, firstCustomerId, customerCount, summary);
+                double[][] dailyUsage = insertOrders(conn, reference, firstCustomerId, customerCount, summary);
+                insertBatches(conn, reference, dailyUsage, summary);
+
+                // Stock on hand is whatever the open batches still hold
+                stmt.executeUpdate("""
+                    UPDATE Ingredients i
+                    SET quantity_in_stock = (
+                        SELECT COALESCE(SUM(b.remaining_quantity), 0)
+                        FROM IngredientBatches b
+                        WHERE b.ingredient_id = i.ingredient_id AND b.status IN ('Available', 'Low')
+                    )
+                    WHERE i.is_deleted = FALSE
+                """);
+                new SalesRollupDAO().rebuild(conn);
+                conn.commit();
+                return summary;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                stmt.execute("SET foreign_key_checks = 1, unique_checks = 1");
+            }
+        } finally {
+            conn.setAutoCommit(originalAutoCommit);
+        }
+    }
+
+    private void insertCustomers(Connection conn, int firstCustomerId, int count, Summary summary) throws SQLException {
+        Random random = new Random(seed);
+        try (MultiRowInsert insert = new MultiRowInsert(conn,
+                "Customers (customer_id, last_name, first_name, email, phonenumber, address)", 6, rowsPerStatement)) {
+            for (int i = 0; i < count; i++) {
+                int customerId = firstCustomerId + i;
+                String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                insert.add(customerId, lastName, firstName,
+                    (firstName + "." + lastName).toLowerCase().replace(' ', '_') + customerId + "@example.com",
+                    String.format("08%09d", customerId),
+                    (1 + random.nextInt(999)) + " Sample St, Cityville");
+            }
+            insert.flush();
+            summary.customers = insert.getRowsWritten();
+        }
+        conn.commit();
+    }
+
+    // Returns the ingredient usage per ingredient and day, which the deliveries are sized from
+    private double[][] insertOrders(Connection conn, ReferenceData reference, int firstCustomerId,
+                                    int customerCount, Summary summary) throws SQLException {
+        Random random = new Random(seed + 1);
+        WeightedChoice hours = WeightedChoice.of(HOURLY_WEIGHTS);
+        WeightedChoice lineCounts = WeightedChoice.of(LINES_PER_ORDER_WEIGHTS);
+        WeightedChoice quantities = WeightedChoice.of(QUANTITY_WEIGHTS);
+        WeightedChoice orderTypes = WeightedChoice.of(ORDER_TYPE_WEIGHTS);
+        WeightedChoice dishes = WeightedChoice.zipf(reference.dishIds.length, DISH_POPULARITY_SKEW);
+        WeightedChoice customerRanks = WeightedChoice.zipf(customerCount, CUSTOMER_LOYALTY_SKEW);
+
+        // Popularity rank -> dish index, shuffled so the best sellers are not simply the lowest ids
+        int[] dishByRank = new int[reference.dishIds.length];
+        for (int i = 0; i < dishByRank.length; i++) {
+            dishByRank[i] = i;
+        }
+        shuffle(dishByRank, random);
+
+        double[][] dailyUsage = new double[reference.ingredientIds.length][historyDays];
+        LocalDate firstDay = lastDay.minusDays(historyDays - 1);
+        double[] dayWeights = new double[historyDays];
+        double totalWeight = 0;
+        for (int day = 0; day < historyDays; day++) {
+            DayOfWeek dayOfWeek = firstDay.plusDays(day).getDayOfWeek();
+            boolean weekend = dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY;
+            // Slow growth over the period on top of the weekly cycle
+            dayWeights[day] = (weekend ? WEEKEND_BOOST : 1.0) * (0.8 + 0.4 * day / historyDays);
+            totalWeight += dayWeights[day];
+        }
+
+        int orderId = nextId(conn, "Orders", "order_id");
+        int maxLines = Math.min(LINES_PER_ORDER_WEIGHTS.length - 1, reference.dishIds.length);
+        Map<Integer, Double> orderUsage = new HashMap<>();
+        Set<Integer> orderDishes = new HashSet<>();
+
+        try (MultiRowInsert orderInsert = new MultiRowInsert(conn,
+                 "Orders (order_id, customer_id, order_type, order_status, order_datetime, total_amount, "
+                     + "payment_method, payment_status)", 8, rowsPerStatement);
+             MultiRowInsert itemInsert = new MultiRowInsert(conn,
+                 "OrderItems (order_id, dish_id, quantity, price_at_time, cost_at_time)", 5, rowsPerStatement);
+             MultiRowInsert employeeInsert = new MultiRowInsert(conn,
+                 "AssignedEmployeesToOrders (order_id, employee_id)", 2, rowsPerStatement);
+             MultiRowInsert usageInsert = new MultiRowInsert(conn,
+                 "IngredientTransactions (ingredient_id, transaction_type, quantity_change, transaction_date, "
+                     + "order_id, employee_id, notes)", 7, rowsPerStatement)) {
+            double cumulativeWeight = 0;
+            long ordersSoFar = 0;
+            for (int day = 0; day < historyDays; day++) {
+                cumulativeWeight += dayWeights[day];
+                long ordersThroughDay = Math.round(orders * cumulativeWeight / totalWeight);
+                int ordersToday = (int) (ordersThroughDay - ordersSoFar);
+                ordersSoFar = ordersThroughDay;
+
+                // Generate the day's times first so order ids increase with order time, as they do live
+                int[] secondsOfDay = new int[ordersToday];
+                for (int i = 0; i < ordersToday; i++) {
+                    secondsOfDay[i] = hours.next(random) * 3600 + random.nextInt(3600);
+                }
+                Arrays.sort(secondsOfDay);
+                LocalDateTime midnight = firstDay.plusDays(day).atStartOfDay();
+
+                for (int i = 0; i < ordersToday; i++, orderId++) {
+                    Timestamp orderTime = Timestamp.valueOf(midnight.plusSeconds(secondsOfDay[i]));
+                    int lines = Math.min(lineCounts.next(random), maxLines);
+                    double total = 0;
+                    orderDishes.clear();
+                    orderUsage.clear();
+                    while (orderDishes.size() < lines) {
+                        int dishIndex = dishByRank[dishes.next(random)];
+                        if (!orderDishes.add(dishIndex)) {
+                            continue;
+                        }
+                        int quantity = quantities.next(random);
+                        double price = reference.dishPrices[dishIndex];
+                        total += quantity * price;
+                        itemInsert.add(orderId, reference.dishIds[dishIndex], quantity, price, price);
+
+                        int[] recipeIngredients = reference.recipeIngredients[dishIndex];
+                        double[] recipeQuantities = reference.recipeQuantities[dishIndex];
+                        for (int r = 0; r < recipeIngredients.length; r++) {
+                            orderUsage.merge(recipeIngredients[r], recipeQuantities[r] * quantity, Double::sum);
+                        }
+                    }
+
+                    String orderType = ORDER_TYPES[orderTypes.next(random)];
+                    boolean cancelled = random.nextDouble() < CANCELLED_RATE;
+                    String paymentMethod = cancelled ? null : random.nextInt(100) < 60 ? "Cash" : "Credit Card";
+                    orderInsert.add(orderId, firstCustomerId + customerRanks.next(random), orderType,
+                        cancelled ? "Cancelled" : "Completed", orderTime, round2(total),
+                        paymentMethod, cancelled ? "Pending" : "Paid");
+
+                    // A chef cooks every order; dine-in orders also get a waiter
+                    int chefId = pick(reference.chefIds, random);
+                    employeeInsert.add(orderId, chefId);
+                    if (orderType.equals("Dine-In") && reference.waiterIds.length > 0) {
+                        employeeInsert.add(orderId, pick(reference.waiterIds, random));
+                    }
+
+                    for (Map.Entry<Integer, Double> usage : orderUsage.entrySet()) {
+                        dailyUsage[usage.getKey()][day] += usage.getValue();
+                        if (usageTransactions) {
+                            usageInsert.add(reference.ingredientIds[usage.getKey()], "Usage",
+                                -round2(usage.getValue()), orderTime, orderId, chefId,
+                                "Ingredients used for order #" + orderId);
+                        }
+                    }
+                }
+
+                orderInsert.flush();
+                itemInsert.flush();
+                employeeInsert.flush();
+                usageInsert.flush();
+                conn.commit();
+            }
+            summary.orders = orderInsert.getRowsWritten();
+            summary.orderLines = itemInsert.getRowsWritten();
+            summary.transactions += usageInsert.getRowsWritten();
+        }
+        return dailyUsage;
+    }
+
+    private void insertBatches(Connection conn, ReferenceData reference, double[][] dailyUsage,
+                               Summary summary) throws SQLException {
+        Random random = new Random(seed + 2);
+        LocalDate firstDay = lastDay.minusDays(historyDays - 1);
+
+        try (MultiRowInsert batchInsert = new MultiRowInsert(conn,
+                 "IngredientBatches (ingredient_id, supplier_id, quantity, purchase_date, expiry_date, "
+                     + "purchase_price, remaining_quantity, status)", 8, rowsPerStatement);
+             MultiRowInsert purchaseInsert = new MultiRowInsert(conn,
+                 "IngredientTransactions (ingredient_id, transaction_type, quantity_change, transaction_date, "
+                     + "unit_price, supplier_id, employee_id, notes)", 8, rowsPerStatement)) {
+            for (int ingredient = 0; ingredient < reference.ingredientIds.length; ingredient++) {
+                // Perishables come often and keep briefly; dry goods come weekly and keep for months
+                boolean perishable = random.nextInt(100) < 60;
+                int deliveryInterval = perishable ? 2 + random.nextInt(2) : 7;
+                int shelfLifeDays = perishable ? 4 + random.nextInt(5) : 60 + random.nextInt(120);
+
+                for (int day = 0; day < historyDays; day += deliveryInterval) {
+                    int windowEnd = Math.min(day + deliveryInterval, historyDays);
+                    double used = 0;
+                    for (int d = day; d < windowEnd; d++) {
+                        used += dailyUsage[ingredient][d];
+                    }
+                    if (used == 0) {
+                        continue;
+                    }
+                    double quantity = round2(used * (1 + DELIVERY_BUFFER));
+                    LocalDate deliveryDate = firstDay.plusDays(day);
+                    LocalDate expiryDate = deliveryDate.plusDays(shelfLifeDays);
+                    Timestamp deliveredAt = Timestamp.valueOf(deliveryDate.atTime(7, random.nextInt(60)));
+
+                    // Only the latest delivery is still in use; earlier leftovers either expired or were used up
+                    double remaining;
+                    String status;
+                    if (windowEnd == historyDays) {
+                        remaining = round2(quantity - used * 0.5);
+                        status = remaining < quantity * 0.2 ? "Low" : "Available";
+                    } else if (!expiryDate.isAfter(lastDay)) {
+                        remaining = round2(quantity - used);
+                        status = "Expired";
+                    } else {
+                        remaining = 0;
+                        status = "Depleted";
+                    }
+
+                    batchInsert.add(reference.ingredientIds[ingredient], reference.supplierIds[ingredient],
+                        quantity, deliveredAt, java.sql.Date.valueOf(expiryDate),
+                        reference.unitPrices[ingredient], remaining, status);
+                    purchaseInsert.add(reference.ingredientIds[ingredient], "Purchase", quantity, deliveredAt,
+                        reference.unitPrices[ingredient], reference.supplierIds[ingredient],
+                        reference.receiverId, "Scheduled delivery");
+                }
+            }
+            batchInsert.flush();
+            purchaseInsert.flush();
+            summary.batches = batchInsert.getRowsWritten();
+            summary.transactions += purchaseInsert.getRowsWritten();
+        }
+        conn.commit();
+    }
+
+    private static int nextId(Connection conn, String table, String idColumn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(%s), 0) + 1 FROM %s".formatted(idColumn, table))) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static int pick(int[] ids, Random random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    // Usage: java util.SyntheticDataGenerator <orders> [seed]
+    // Connects like the application does (see DatabaseConnection for the restaurant.db.* properties)
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: java util.SyntheticDataGenerator <orders> [seed]");
+            System.exit(1);
+        }
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(args.length > 1 ? Long.parseLong(args[1]) : 42L);
+        generator.setOrders(Integer.parseInt(args[0]));
+
+        QueryMetrics.setEnabled(false);
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Summary summary = generator.generate(conn);
+            System.out.printf("Generated %d customers, %d orders, %d order lines, %d batches and %d transactions in %.1f s%n",
+                summary.getCustomers(), summary.getOrders(), summary.getOrderLines(),
+                summary.getBatches(), summary.getTransactions(), (System.nanoTime() - start) / 1e9);
+        } finally {
+            DatabaseConnection.closeConnection();
+        }
+    }
+
+    public static class Summary {
+        private long customers;
+        private long orders;
+        private long orderLines;
+        private long batches;
+        private long transactions;
+
+        public long getCustomers() { return customers; }
+        public long getOrders() { return orders; }
+        public long getOrderLines() { return orderLines; }
+        public long getBatches() { return batches; }
+        public long getTransactions() { return transactions; }
+    }
+
+    // Dishes, staff and ingredients the generated rows refer to, indexed 0..n-1 for the hot loop
+    private static class ReferenceData {
+        int[] dishIds;
+        double[] dishPrices;
+        int[][] recipeIngredients; // Ingredient indexes, not ids
+        double[][] recipeQuantities;
+        int[] ingredientIds;
+        int[] supplierIds;
+        double[] unitPrices;
+        int[] chefIds;
+        int[] waiterIds;
+        int receiverId;
+
+        ReferenceData(Connection conn) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                Map<Integer, Integer> ingredientIndex = new HashMap<>();
+                List<int[]> suppliers = new ArrayList<>();
+                List<Double> prices = new ArrayList<>();
+                // Primary supplier first, falling back to any active supplier at the ingredient's own cost
+                try (ResultSet rs = stmt.executeQuery("""
+                    SELECT i.ingredient_id,
+                           COALESCE(s.supplier_id, (SELECT MIN(supplier_id) FROM Suppliers WHERE is_deleted = FALSE)) AS supplier_id,
+                           COALESCE(s.unit_price, i.cost_per_unit) AS unit_price
+                    FROM Ingredients i
+                    LEFT JOIN IngredientSuppliers s
+                        ON s.ingredient_id = i.ingredient_id AND s.is_primary_supplier = TRUE
+                    WHERE i.is_deleted = FALSE
+                    ORDER BY i.ingredient_id
+                """)) {
+                    while (rs.next()) {
+                        ingredientIndex.put(rs.getInt("ingredient_id"), suppliers.size());
+                        suppliers.add(new int[] {rs.getInt("ingredient_id"), rs.getInt("supplier_id")});
+                        prices.add(rs.getDouble("unit_price"));
+                    }
+                }
+                ingredientIds = suppliers.stream().mapToInt(row -> row[0]).toArray();
+                supplierIds = suppliers.stream().mapToInt(row -> row[1]).toArray();
+                unitPrices = prices.stream().mapToDouble(Double::doubleValue).toArray();
+
+                List<Integer> dishes = new ArrayList<>();
+                List<Double> dishPriceList = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT dish_id, selling_price FROM Dishes WHERE is_deleted = FALSE ORDER BY dish_id")) {
+                    while (rs.next()) {
+                        dishes.add(rs.getInt("dish_id"));
+                        dishPriceList.add(rs.getDouble("selling_price"));
+                    }
+                }
+                if (dishes.isEmpty()) {
+                    throw new SQLException("No dishes to generate orders for");
+                }
+                dishIds = dishes.stream().mapToInt(Integer::intValue).toArray();
+                dishPrices = dishPriceList.stream().mapToDouble(Double::doubleValue).toArray();
+
+                Map<Integer, List<double[]>> recipes = new HashMap<>();
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT dish_id, ingredient_id, quantity_needed FROM DishIngredients")) {
+                    while (rs.next()) {
+                        Integer index = ingredientIndex.get(rs.getInt("ingredient_id"));
+                        if (index != null) {
+                            recipes.computeIfAbsent(rs.getInt("dish_id"), id -> new ArrayList<>())
+                                .add(new double[] {index, rs.getDouble("quantity_needed")});
+                        }
+                    }
+                }
+                recipeIngredients = new int[dishIds.length][];
+                recipeQuantities = new double[dishIds.length][];
+                for (int i = 0; i < dishIds.length; i++) {
+                    List<double[]> recipe = recipes.getOrDefault(dishIds[i], List.of());
+                    recipeIngredients[i] = recipe.stream().mapToInt(row -> (int) row[0]).toArray();
+                    recipeQuantities[i] = recipe.stream().mapToDouble(row -> row[1]).toArray();
+                }
+
+                List<Integer> chefs = new ArrayList<>();
+                List<Integer> waiters = new ArrayList<>();
+                List<Integer> everyone = new ArrayList<>();
+                try (ResultSet rs = stmt.executeQuery("""
+                    SELECT e.employee_id, r.role_name
+                    FROM Employees e
+                    JOIN Roles r ON e.role_id = r.role_id
+                    WHERE e.is_deleted = FALSE
+                    ORDER BY e.employee_id
+                """)) {
+                    while (rs.next()) {
+                        int employeeId = rs.getInt("employee_id");
+                        everyone.add(employeeId);
+                        if (rs.getString("role_name").equals("Chef")) {
+                            chefs.add(employeeId);
+                        } else if (rs.getString("role_name").equals("Waiter")) {
+                            waiters.add(employeeId);
+                        }
+                    }
+                }
+                if (everyone.isEmpty()) {
+                    throw new SQLException("No employees to assign generated orders to");
+                }
+                chefIds = (chefs.isEmpty() ? everyone : chefs).stream().mapToInt(Integer::intValue).toArray();
+                waiterIds = waiters.stream().mapToInt(Integer::intValue).toArray();
+                receiverId = everyone.get(0);
+            }
+        }
+    }
+
+    // Draws indexes 0..n-1 in proportion to fixed weights
+    private static class WeightedChoice {
+        private final double[] cumulative;
+
+        private WeightedChoice(double[] weights) {
+            cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        static WeightedChoice of(int[] weights) {
+            return new WeightedChoice(Arrays.stream(weights).asDoubleStream().toArray());
+        }
+
+        // Rank i is drawn with weight 1 / (i + 1)^skew
+        static WeightedChoice zipf(int n, double skew) {
+            double[] weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = 1.0 / Math.pow(i + 1, skew);
+            }
+            return new WeightedChoice(weights);
+        }
+
+        int next(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            // First index whose cumulative weight passes the target; zero-weight entries are never chosen
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] > target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Buffers rows and writes them rowsPerStatement at a time as a single INSERT ... VALUES (...), (...)
+    private static class MultiRowInsert implements AutoCloseable {
+        private final Connection conn;
+        private final String target;
+        private final int columns;
+        private final int rowsPerStatement;
+        private final Object[] values;
+        private PreparedStatement fullStatement;
+        private int rows = 0;
+        private long rowsWritten = 0;
+
+        MultiRowInsert(Connection conn, String target, int columns, int rowsPerStatement) {
+            this.conn = conn;
+            this.target = target;
+            this.columns = columns;
+            this.rowsPerStatement = rowsPerStatement;
+            this.values = new Object[columns * rowsPerStatement];
+        }
+
+        void add(Object... row) throws SQLException {
+            System.arraycopy(row, 0, values, rows * columns, columns);
+            if (++rows == rowsPerStatement) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (rows == 0) {
+                return;
+            }
+            if (rows == rowsPerStatement) {
+                if (fullStatement == null) {
+                    fullStatement = conn.prepareStatement(insertFor(rows));
+                }
+                execute(fullStatement);
+            } else {
+                try (PreparedStatement stmt = conn.prepareStatement(insertFor(rows))) {
+                    execute(stmt);
+                }
+            }
+            rowsWritten += rows;
+            rows = 0;
+        }
+
+        long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        private void execute(PreparedStatement stmt) throws SQLException {
+            for (int i = 0; i < rows * columns; i++) {
+                stmt.setObject(i + 1, values[i]);
+            }
+            stmt.executeUpdate();
+        }
+
+        private String insertFor(int rowCount) {
+            String row = "(" + String.join(", ", Collections.nCopies(columns, "?")) + ")";
+            return "INSERT INTO %s VALUES %s".formatted(target, String.join(", ", Collections.nCopies(rowCount, row)));
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (fullStatement != null) {
+                fullStatement.close();
+            }
+        }
+    }
+}
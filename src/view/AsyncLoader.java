@@ -0,0 +1,94 @@
+package view;
+
+import javax.swing.*;
+import java.awt.Cursor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+// Runs one panel's data load off the Event Dispatch Thread and applies the result back on it.
+// Starting a new load supersedes the previous one: its future is cancelled, which keeps a queued load from
+// starting and interrupts the worker running it (see BackgroundExecutor.submit), and a late result is dropped.
+// A JDBC call already waiting on the server may still run to completion; only its result is discarded.
+// Must be used from the Event Dispatch Thread.
+public class AsyncLoader<T> {
+    private static final String BUSY_COUNT = "AsyncLoader.busyCount";
+
+    private final JComponent owner;
+    private final String description;
+    private final JProgressBar indicator;
+    private CompletableFuture<T> current;
+    private int generation = 0;
+
+    public AsyncLoader(JComponent owner, String description) {
+        this.owner = owner;
+        this.description = description;
+        this.indicator = new JProgressBar();
+        indicator.setIndeterminate(true);
+        indicator.setVisible(false);
+        indicator.setToolTipText("Loading " + description + "...");
+    }
+
+    // Indeterminate progress bar shown while a load is running; panels place it where they like
+    public JProgressBar getIndicator() {
+        return indicator;
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    // Takes the future of a controller call (see RestaurantController.async) and applies its result on the EDT
+    public void load(CompletableFuture<T> future, Consumer<T> apply) {
+        cancel();
+        int requestGeneration = ++generation;
+        setBusy(true);
+        current = future;
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (requestGeneration != generation) {
+                return; // Superseded by a newer load or cancelled
+            }
+            current = null;
+            setBusy(false);
+            if (error == null) {
+                apply.accept(result);
+            } else if (!(unwrap(error) instanceof CancellationException)) {
+                showError(unwrap(error));
+            }
+        }));
+    }
+
+    public void cancel() {
+        if (current != null) {
+            generation++;
+            current.cancel(true);
+            current = null;
+            setBusy(false);
+        }
+    }
+
+    private void setBusy(boolean busy) {
+        indicator.setVisible(busy);
+        if (owner == null) {
+            return;
+        }
+        // Several loaders can share a panel; keep the wait cursor until the last one finishes
+        Integer count = (Integer) owner.getClientProperty(BUSY_COUNT);
+        int newCount = Math.max(0, (count == null ? 0 : count) + (busy ? 1 : -1));
+        owner.putClientProperty(BUSY_COUNT, newCount);
+        owner.setCursor(newCount > 0 ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+    }
+
+    private void showError(Throwable error) {
+        error.printStackTrace();
+        JOptionPane.showMessageDialog(owner,
+            "Failed to load " + description + ": " + error.getMessage(),
+            "Database Error",
+            JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
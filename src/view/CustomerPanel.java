@@ -21,9 +21,11 @@ public class CustomerPanel extends JPanel {
     private JButton refreshButton;
     private JButton helpButton;
     private List<Integer> customerIds = new ArrayList<>();
+    private AsyncLoader<List<Customer>> customersLoader;
 
     public CustomerPanel(RestaurantController controller) {
         this.controller = controller;
+        this.customersLoader = new AsyncLoader<>(this, "customers");
         setLayout(new BorderLayout());
         initComponents();
         loadCustomers();
@@ -43,6 +45,7 @@ public class CustomerPanel extends JPanel {
         toolBar.add(deleteButton);
         toolBar.add(viewOrdersButton);
         toolBar.add(refreshButton);
+        toolBar.add(customersLoader.getIndicator());
 
         // Create help button
         helpButton = new JButton("Help");
@@ -125,9 +128,12 @@ public class CustomerPanel extends JPanel {
     }
 
     private void loadCustomers() {
+        customersLoader.load(controller.async(controller::getAllCustomers), this::showCustomers);
+    }
+
+    private void showCustomers(List<Customer> customers) {
         tableModel.setRowCount(0);
         customerIds.clear();
-        List<Customer> customers = controller.getAllCustomers();
         for (Customer customer : customers) {
             customerIds.add(customer.getCustomerId());
             Object[] row = {
@@ -279,7 +285,7 @@ public class CustomerPanel extends JPanel {
             Object[] row = {
                 order.getOrderId(),
                 order.getOrderDateTime(),
-                String.format("$%.2f", controller.calculateOrderTotal(order.getOrderId())),
+                String.format("$%.2f", order.getItemsTotal()),
                 order.getOrderStatus()
             };
             orderModel.addRow(row);
@@ -19,9 +19,21 @@ public class DeletedRecordsPanel extends JPanel {
     private JTable deletedSuppliersTable;
     private JTable deletedInventoryTable;
 
+    // One loader per table, so the five lists load in parallel off the EDT
+    private final AsyncLoader<List<Customer>> customersLoader;
+    private final AsyncLoader<List<Order>> ordersLoader;
+    private final AsyncLoader<List<Employee>> employeesLoader;
+    private final AsyncLoader<List<Supplier>> suppliersLoader;
+    private final AsyncLoader<List<Ingredient>> inventoryLoader;
+
     public DeletedRecordsPanel(RestaurantController controller, MainFrame parentFrame) {
         this.controller = controller;
         this.parentFrame = parentFrame;
+        this.customersLoader = new AsyncLoader<>(this, "deleted customers");
+        this.ordersLoader = new AsyncLoader<>(this, "deleted orders");
+        this.employeesLoader = new AsyncLoader<>(this, "deleted employees");
+        this.suppliersLoader = new AsyncLoader<>(this, "deleted suppliers");
+        this.inventoryLoader = new AsyncLoader<>(this, "deleted ingredients");
         setLayout(new BorderLayout());
         
         // Create top panel with back button
@@ -29,6 +41,11 @@ public class DeletedRecordsPanel extends JPanel {
         JButton backButton = new JButton("Back to Main");
         backButton.addActionListener(e -> parentFrame.showMainPanel());
         topPanel.add(backButton);
+        topPanel.add(customersLoader.getIndicator());
+        topPanel.add(ordersLoader.getIndicator());
+        topPanel.add(employeesLoader.getIndicator());
+        topPanel.add(suppliersLoader.getIndicator());
+        topPanel.add(inventoryLoader.getIndicator());
         add(topPanel, BorderLayout.NORTH);
         
         // Create tabbed pane
@@ -253,9 +270,12 @@ public class DeletedRecordsPanel extends JPanel {
     }
 
     private void refreshCustomersTable() {
+        customersLoader.load(controller.async(controller::getDeletedCustomers), this::showCustomersTable);
+    }
+
+    private void showCustomersTable(List<Customer> deletedCustomers) {
         DefaultTableModel model = (DefaultTableModel) deletedCustomersTable.getModel();
         model.setRowCount(0);
-        List<Customer> deletedCustomers = controller.getDeletedCustomers();
         for (Customer customer : deletedCustomers) {
             model.addRow(new Object[]{
                 customer.getCustomerId(),
@@ -268,9 +288,12 @@ public class DeletedRecordsPanel extends JPanel {
     }
 
     private void refreshOrdersTable() {
+        ordersLoader.load(controller.async(controller::getDeletedOrders), this::showOrdersTable);
+    }
+
+    private void showOrdersTable(List<Order> deletedOrders) {
         DefaultTableModel model = (DefaultTableModel) deletedOrdersTable.getModel();
         model.setRowCount(0);
-        List<Order> deletedOrders = controller.getDeletedOrders();
         for (Order order : deletedOrders) {
             model.addRow(new Object[]{
                 order.getOrderId(),
@@ -284,9 +307,12 @@ public class DeletedRecordsPanel extends JPanel {
     }
 
     private void refreshEmployeesTable() {
+        employeesLoader.load(controller.async(controller::getDeletedEmployees), this::showEmployeesTable);
+    }
+
+    private void showEmployeesTable(List<Employee> deletedEmployees) {
         DefaultTableModel model = (DefaultTableModel) deletedEmployeesTable.getModel();
         model.setRowCount(0);
-        List<Employee> deletedEmployees = controller.getDeletedEmployees();
         for (Employee employee : deletedEmployees) {
             model.addRow(new Object[]{
                 employee.getEmployeeId(),
@@ -298,9 +324,12 @@ public class DeletedRecordsPanel extends JPanel {
     }
 
     private void refreshSuppliersTable() {
+        suppliersLoader.load(controller.async(controller::getDeletedSuppliers), this::showSuppliersTable);
+    }
+
+    private void showSuppliersTable(List<Supplier> deletedSuppliers) {
         DefaultTableModel model = (DefaultTableModel) deletedSuppliersTable.getModel();
         model.setRowCount(0);
-        List<Supplier> deletedSuppliers = controller.getDeletedSuppliers();
         for (Supplier supplier : deletedSuppliers) {
             model.addRow(new Object[]{
                 supplier.getSupplierId(),
@@ -313,9 +342,12 @@ public class DeletedRecordsPanel extends JPanel {
     }
 
     private void refreshInventoryTable() {
+        inventoryLoader.load(controller.async(controller::getDeletedIngredients), this::showInventoryTable);
+    }
+
+    private void showInventoryTable(List<Ingredient> deletedItems) {
         DefaultTableModel model = (DefaultTableModel) deletedInventoryTable.getModel();
         model.setRowCount(0);
-        List<Ingredient> deletedItems = controller.getDeletedIngredients();
         for (Ingredient item : deletedItems) {
             model.addRow(new Object[]{
                 item.getIngredientId(),
@@ -0,0 +1,71 @@
+package view;
+
+import util.DataAccessError;
+import util.DatabaseConnection;
+import util.ErrorChannel;
+
+import javax.swing.*;
+
+// Presents errors from the data-access layer as dialogs. Errors raised on the Event Dispatch Thread are
+// shown straight away, as before; errors from background threads are queued onto it, so a worker never
+// waits on a dialog.
+public class ErrorDialogs implements ErrorChannel.Listener {
+    public static void install() {
+        ErrorChannel.setListener(new ErrorDialogs());
+    }
+
+    @Override
+    public void errorReported(DataAccessError error) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            show(error);
+        } else {
+            SwingUtilities.invokeLater(() -> show(error));
+        }
+    }
+
+    private void show(DataAccessError error) {
+        if (DatabaseConnection.PASSWORD_ERROR_TITLE.equals(error.getTitle())) {
+            Object[] options = {"Open MySQL Instructions", "OK"};
+            int choice = JOptionPane.showOptionDialog(null,
+                error.getMessage() + "\n\nNeed help? Click 'Open MySQL Instructions' for a guide.",
+                error.getTitle(),
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE,
+                null,
+                options,
+                options[1]
+            );
+            if (choice == 0) {
+                showInstructions();
+            }
+            return;
+        }
+        JOptionPane.showMessageDialog(null,
+            error.getMessage(),
+            error.getTitle(),
+            error.getKind() == DataAccessError.Kind.REJECTED
+                ? JOptionPane.WARNING_MESSAGE
+                : JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static void showInstructions() {
+        JOptionPane.showMessageDialog(null,
+            "MySQL Setup Instructions:\n\n" +
+            "1. Open MySQL Workbench\n" +
+            "2. Click on your local MySQL connection\n" +
+            "3. If you don't remember your root password:\n" +
+            "   a. Open Windows Services\n" +
+            "   b. Stop MySQL service\n" +
+            "   c. Open Command Prompt as Administrator\n" +
+            "   d. Run: mysqld --init-file=C:\\mysql-init.txt\n" +
+            "   e. Create a file mysql-init.txt with:\n" +
+            "      ALTER USER 'root'@'localhost' IDENTIFIED BY 'your_new_password';\n\n" +
+            "4. Once you have your password:\n" +
+            "   a. Open src/util/DatabaseConnection.java\n" +
+            "   b. Update the PASSWORD field\n" +
+            "   c. Save and restart the application",
+            "MySQL Setup Guide",
+            JOptionPane.INFORMATION_MESSAGE
+        );
+    }
+}
@@ -2,6 +2,7 @@ package view;
 
 import controller.RestaurantController;
 import model.Ingredient;
+import model.ReorderSuggestion;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -16,9 +17,11 @@ public class IngredientPanel extends JPanel {
     private DefaultTableModel ingredientTableModel;
     private List<Integer> ingredientIds = new ArrayList<>();
     private JCheckBox lowStockCheckBox;
+    private final AsyncLoader<List<ReorderSuggestion>> reorderLoader;
 
     public IngredientPanel(RestaurantController controller) {
         this.controller = controller;
+        this.reorderLoader = new AsyncLoader<>(this, "reorder suggestions");
         setLayout(new BorderLayout());
         initComponents();
         loadData();
@@ -33,17 +36,20 @@ public class IngredientPanel extends JPanel {
         JButton addIngredientBtn = createStyledButton("Add Ingredient", new Color(40, 167, 69));
         JButton editIngredientBtn = createStyledButton("Edit Ingredient", new Color(255, 193, 7));
         JButton deleteIngredientBtn = createStyledButton("Delete Ingredient", new Color(220, 53, 69));
+        JButton reorderBtn = createStyledButton("Reorder Suggestions", new Color(0, 123, 255));
         JButton helpBtn = createStyledButton("Help", new Color(23, 162, 184));
         
         ingredientToolbar.add(addIngredientBtn);
         ingredientToolbar.add(editIngredientBtn);
         ingredientToolbar.add(deleteIngredientBtn);
+        ingredientToolbar.add(reorderBtn);
         ingredientToolbar.add(helpBtn);
         
         // Create filter panel
         JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         lowStockCheckBox = new JCheckBox("Show Low Stock Only");
         filterPanel.add(lowStockCheckBox);
+        filterPanel.add(reorderLoader.getIndicator());
         
         // Create ingredients table
         String[] ingredientColumns = {"Name", "Unit", "Current Stock", "Min Stock Level", "Cost/Unit", "Status", "Primary Supplier"};
@@ -66,10 +72,14 @@ public class IngredientPanel extends JPanel {
         addIngredientBtn.addActionListener(e -> showAddIngredientDialog());
         editIngredientBtn.addActionListener(e -> editSelectedIngredient());
         deleteIngredientBtn.addActionListener(e -> deleteSelectedIngredient());
+        reorderBtn.addActionListener(e ->
+            reorderLoader.load(controller.async(controller::getReorderSuggestions), this::showReorderDialog));
         helpBtn.addActionListener(e -> showHelp());
         
         // Add filter listener
         lowStockCheckBox.addActionListener(e -> loadData());
+        // Reload only when an ingredient crosses its minimum level, not on every stock change
+        controller.addLowStockListener(crossed -> SwingUtilities.invokeLater(this::loadData));
         
         add(mainPanel);
     }
@@ -78,12 +88,13 @@ public class IngredientPanel extends JPanel {
         ingredientTableModel.setRowCount(0);
         ingredientIds.clear();
         
-        List<Ingredient> ingredients = controller.getAllIngredients();
         boolean showLowStockOnly = lowStockCheckBox.isSelected();
+        List<Ingredient> ingredients = showLowStockOnly
+            ? controller.getLowStockIngredients()
+            : controller.getAllIngredients();
         
         for (Ingredient ingredient : ingredients) {
             if (ingredient.isDeleted()) continue;
-            if (showLowStockOnly && ingredient.getQuantityInStock() > ingredient.getMinimumStockLevel()) continue;
             
             ingredientIds.add(ingredient.getIngredientId());
             String status = ingredient.getQuantityInStock() <= ingredient.getMinimumStockLevel() ? "Low Stock" : "In Stock";
@@ -380,6 +391,41 @@ public class IngredientPanel extends JPanel {
         }
     }
 
+    private void showReorderDialog(List<ReorderSuggestion> suggestions) {
+        String[] columns = {"Ingredient", "In Stock", "Usage/Day", "Reorder Point", "Order Qty",
+            "Supplier", "Lead Time (days)", "Est. Cost"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (ReorderSuggestion suggestion : suggestions) {
+            model.addRow(new Object[]{
+                suggestion.getIngredientName(),
+                String.format("%.2f %s", suggestion.getQuantityInStock(), suggestion.getUnitName()),
+                String.format("%.2f", suggestion.getDailyUsage()),
+                String.format("%.2f", suggestion.getReorderPoint()),
+                suggestion.isReorderNeeded() ? String.format("%.2f", suggestion.getSuggestedQuantity()) : "-",
+                suggestion.getSupplierName() != null ? suggestion.getSupplierName() : "N/A",
+                suggestion.getLeadTimeDays(),
+                suggestion.isReorderNeeded() ? String.format("%.2f", suggestion.getEstimatedCost()) : "-"
+            });
+        }
+
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Reorder Suggestions", true);
+        dialog.setLayout(new BorderLayout());
+        dialog.add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        JButton closeBtn = new JButton("Close");
+        closeBtn.addActionListener(e -> dialog.dispose());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(closeBtn);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setSize(900, 450);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
     private void showHelp() {
         JOptionPane.showMessageDialog(this,
             """
@@ -388,7 +434,8 @@ public class IngredientPanel extends JPanel {
             1. Add Ingredient: Add a new ingredient to the inventory
             2. Edit Ingredient: Modify existing ingredient details
             3. Delete Ingredient: Remove an ingredient from the system
-            4. Low Stock Filter: Show only ingredients below minimum stock level
+            4. Reorder Suggestions: What to order and how much, from recent usage and supplier lead times
+            5. Low Stock Filter: Show only ingredients below minimum stock level
             
             Status Colors:
             - In Stock: Normal stock levels
@@ -1,11 +1,13 @@
 package view;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import controller.RestaurantController;
+import util.QueryMetrics;
 import view.panels.*;
 
 public class MainFrame extends JFrame {
@@ -63,6 +65,10 @@ public class MainFrame extends JFrame {
         
         // File menu
         JMenu fileMenu = new JMenu("File");
+        JMenuItem rebuildSalesItem = new JMenuItem("Rebuild Sales Summary");
+        rebuildSalesItem.addActionListener(e -> rebuildSalesSummary(rebuildSalesItem));
+        fileMenu.add(rebuildSalesItem);
+        fileMenu.addSeparator();
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.addActionListener(e -> System.exit(0));
         fileMenu.add(exitItem);
@@ -72,6 +78,9 @@ public class MainFrame extends JFrame {
         viewDeletedRecordsItem = new JMenuItem("View Deleted Records");
         viewDeletedRecordsItem.addActionListener(e -> showDeletedRecordsPanel());
         viewMenu.add(viewDeletedRecordsItem);
+        JMenuItem queryStatsItem = new JMenuItem("Query Statistics");
+        queryStatsItem.addActionListener(e -> showQueryStatistics());
+        viewMenu.add(queryStatsItem);
         
         menuBar.add(fileMenu);
         menuBar.add(viewMenu);
@@ -85,6 +94,66 @@ public class MainFrame extends JFrame {
         }
     }
 
+    // Backfills the daily sales rollup the reports read; runs in the background since it scans every order
+    private void rebuildSalesSummary(JMenuItem menuItem) {
+        menuItem.setEnabled(false);
+        // whenComplete, so the menu item comes back even if the rebuild throws
+        controller.async(controller::rebuildSalesRollup).whenComplete((rebuilt, failure) ->
+            SwingUtilities.invokeLater(() -> {
+                menuItem.setEnabled(true);
+                if (failure != null) {
+                    JOptionPane.showMessageDialog(this,
+                        "Failed to rebuild the sales summary: " + failure.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                } else if (rebuilt) {
+                    JOptionPane.showMessageDialog(this,
+                        "Sales summary rebuilt successfully.",
+                        "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+                }
+            }));
+    }
+
+    private void showQueryStatistics() {
+        String[] columns = {"Operation", "Calls", "Errors", "Rows", "p50 ms", "p95 ms", "p99 ms", "Max ms"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (QueryMetrics.OperationSnapshot op : controller.getQueryMetrics()) {
+            model.addRow(new Object[] {
+                op.getOperation(),
+                op.getCalls(),
+                op.getErrors(),
+                op.getRows(),
+                String.format("%.2f", op.getP50Millis()),
+                String.format("%.2f", op.getP95Millis()),
+                String.format("%.2f", op.getP99Millis()),
+                String.format("%.2f", op.getMaxMillis())
+            });
+        }
+        JTable table = new JTable(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(260);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(800, 400));
+
+        Object[] options = {"Reset", "Close"};
+        int choice = JOptionPane.showOptionDialog(this,
+            scrollPane,
+            "Query Statistics",
+            JOptionPane.DEFAULT_OPTION,
+            JOptionPane.PLAIN_MESSAGE,
+            null,
+            options,
+            options[1]);
+        if (choice == 0) {
+            controller.resetQueryMetrics();
+        }
+    }
+
     public void showMainPanel() {
         cardLayout.show(mainPanel, "Main");
     }
@@ -96,6 +165,7 @@ public class MainFrame extends JFrame {
             e.printStackTrace();
         }
 
+        ErrorDialogs.install();
         SwingUtilities.invokeLater(() -> {
             MainFrame frame = new MainFrame();
             frame.setVisible(true);
@@ -7,9 +7,6 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.text.SimpleDateFormat;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.Map;
 import model.Dish;
 import model.Ingredient;
@@ -21,14 +18,17 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
 public class OrderHistoryPanel extends JPanel {
+    private static final int PAGE_SIZE = 100;
+    // Fetch the next page once the viewport is within this many rows of the bottom
+    private static final int PREFETCH_ROWS = 20;
+
     private JTable orderTable;
-    private DefaultTableModel tableModel;
+    private PagedOrderTableModel tableModel;
     private RestaurantController controller;
     private JButton viewButton;
     private JButton deleteButton;
     private JButton refreshButton;
     private JButton helpButton;
-    private List<Integer> orderIds = new ArrayList<>();
 
     public OrderHistoryPanel(RestaurantController controller) {
         this.controller = controller;
@@ -51,19 +51,23 @@ public class OrderHistoryPanel extends JPanel {
         toolBar.add(helpButton);
 
         // Create table
-        String[] columnNames = {
-            "Order Date", "Customer Name", "Order Type", 
-            "Status", "Total Amount", "Payment Status"
-        };
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new PagedOrderTableModel(controller, PAGE_SIZE, this);
+        toolBar.add(tableModel.getLoadingIndicator());
         orderTable = new JTable(tableModel);
         JScrollPane scrollPane = new JScrollPane(orderTable);
 
+        // Pull in the next page as the user scrolls towards the end of what is loaded
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(e -> {
+            if (e.getValueIsAdjusting() || !tableModel.hasMore()) {
+                return;
+            }
+            JScrollBar bar = (JScrollBar) e.getAdjustable();
+            int remaining = bar.getMaximum() - (bar.getValue() + bar.getVisibleAmount());
+            if (remaining <= PREFETCH_ROWS * orderTable.getRowHeight()) {
+                tableModel.loadNextPage();
+            }
+        });
+
         // Add components to panel
         add(toolBar, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
@@ -72,7 +76,7 @@ public class OrderHistoryPanel extends JPanel {
         viewButton.addActionListener(e -> {
             int selectedRow = orderTable.getSelectedRow();
             if (selectedRow != -1) {
-                int orderId = orderIds.get(selectedRow);
+                int orderId = tableModel.getOrderIdAt(selectedRow);
                 showOrderDetailsDialog(orderId);
             } else {
                 JOptionPane.showMessageDialog(this,
@@ -85,7 +89,7 @@ public class OrderHistoryPanel extends JPanel {
         deleteButton.addActionListener(e -> {
             int selectedRow = orderTable.getSelectedRow();
             if (selectedRow != -1) {
-                int orderId = orderIds.get(selectedRow);
+                int orderId = tableModel.getOrderIdAt(selectedRow);
                 int confirm = JOptionPane.showConfirmDialog(this,
                     "Are you sure you want to delete this order?",
                     "Confirm Delete",
@@ -113,23 +117,7 @@ public class OrderHistoryPanel extends JPanel {
     }
 
     private void loadOrders() {
-        tableModel.setRowCount(0);
-        orderIds.clear();
-        List<Order> orders = controller.getAllOrders();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        
-        for (Order order : orders) {
-            orderIds.add(order.getOrderId());
-            Object[] row = {
-                dateFormat.format(order.getOrderDateTime()),
-                order.getCustomerName(),
-                order.getOrderType(),
-                order.getOrderStatus(),
-                String.format("₱%.2f", order.getTotalAmount()),
-                order.getPaymentStatus()
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.reload();
     }
 
     private void showOrderDetailsDialog(int orderId) {
@@ -249,8 +237,9 @@ public class OrderHistoryPanel extends JPanel {
 
         // Get ingredients for this dish
         Map<Integer, Double> requiredIngredients = controller.getDishIngredients(dish.getDishId());
+        Map<Integer, Ingredient> ingredients = controller.getIngredientsByIds(requiredIngredients.keySet());
         for (Map.Entry<Integer, Double> entry : requiredIngredients.entrySet()) {
-            Ingredient ingredient = controller.getIngredientById(entry.getKey());
+            Ingredient ingredient = ingredients.get(entry.getKey());
             if (ingredient != null) {
                 double requiredPerDish = entry.getValue();
                 double totalRequired = requiredPerDish * item.getQuantity();
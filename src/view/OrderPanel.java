@@ -9,6 +9,7 @@ import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public class OrderPanel extends JPanel {
     private final RestaurantController controller;
@@ -20,6 +21,8 @@ public class OrderPanel extends JPanel {
     private JLabel totalLabel;
     private double total = 0.0;
     private List<OrderItem> orderItems = new ArrayList<>();
+    // Identifies this cart's stock holds, so other terminals cannot sell what it is about to order
+    private String cartId = UUID.randomUUID().toString();
 
     public OrderPanel(RestaurantController controller) {
         this.controller = controller;
@@ -55,7 +58,10 @@ public class OrderPanel extends JPanel {
         productPanel.add(new JLabel("Product:"));
         productCombo = new JComboBox<>();
         productCombo.setToolTipText("<html>Select the menu item to add to the order</html>");
+        productCombo.setRenderer(new PortionsRenderer());
         updateProductCombo();
+        // Portion counts change whenever stock moves; repaint so the labels stay current
+        controller.addPortionsListener(changed -> SwingUtilities.invokeLater(productCombo::repaint));
         productPanel.add(productCombo);
 
         // Add help button for product selection
@@ -170,7 +176,8 @@ public class OrderPanel extends JPanel {
         if (category != null) {
             List<Dish> dishes = controller.getDishesByCategory(category);
             for (Dish dish : dishes) {
-                if (dish.isAvailable()) {
+                // Out-of-stock dishes stay listed (grayed out) even after they are marked unavailable
+                if (dish.isAvailable() || controller.getPortionsAvailable(dish.getDishId()) == 0) {
                     productCombo.addItem(dish);
                 }
             }
@@ -187,6 +194,24 @@ public class OrderPanel extends JPanel {
             return;
         }
 
+        int portions = controller.getPortionsAvailable(selectedDish.getDishId());
+        int requested = (int) quantitySpinner.getValue();
+        for (OrderItem item : orderItems) {
+            if (item.getDishId() == selectedDish.getDishId()) {
+                requested += item.getQuantity();
+            }
+        }
+        if (requested > portions) {
+            JOptionPane.showMessageDialog(this,
+                portions == 0
+                    ? selectedDish.getName() + " is out of stock."
+                    : String.format("Only %d portion(s) of %s can be made with current stock.",
+                        portions, selectedDish.getName()),
+                "Insufficient Stock",
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         // Show ingredients dialog before adding to order
         if (!showIngredientDetailsDialog(selectedDish)) {
             return; // User cancelled or not enough ingredients
@@ -194,6 +219,11 @@ public class OrderPanel extends JPanel {
 
         int quantity = (int) quantitySpinner.getValue();
 
+        // Hold stock for the whole cart before adding the item; if that fails the reason is already shown
+        if (!controller.holdCart(cartId, cartWith(selectedDish, quantity))) {
+            return;
+        }
+
         // Check if the item is already in the order
         for (int i = 0; i < itemsModel.getRowCount(); i++) {
             String dishName = (String) itemsModel.getValueAt(i, 0);
@@ -238,6 +268,29 @@ public class OrderPanel extends JPanel {
         updateTotal();
     }
 
+    // The cart's items as they would be after adding quantity more of dish
+    private List<OrderItem> cartWith(Dish dish, int quantity) {
+        List<OrderItem> items = new ArrayList<>();
+        boolean merged = false;
+        for (OrderItem item : orderItems) {
+            OrderItem copy = new OrderItem();
+            copy.setDishId(item.getDishId());
+            copy.setQuantity(item.getQuantity());
+            if (item.getDishId() == dish.getDishId()) {
+                copy.setQuantity(item.getQuantity() + quantity);
+                merged = true;
+            }
+            items.add(copy);
+        }
+        if (!merged) {
+            OrderItem added = new OrderItem();
+            added.setDishId(dish.getDishId());
+            added.setQuantity(quantity);
+            items.add(added);
+        }
+        return items;
+    }
+
     private boolean showIngredientDetailsDialog(Dish dish) {
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this),
             "Dish Ingredients", true);
@@ -269,15 +322,21 @@ public class OrderPanel extends JPanel {
 
         // Get ingredients for this dish
         Map<Integer, Double> requiredIngredients = controller.getDishIngredients(dish.getDishId());
+        // Stock other carts are holding is not available to this one
+        Map<Integer, Double> heldElsewhere = controller.getHeldByOtherCarts(
+            new ArrayList<>(requiredIngredients.keySet()), cartId);
         boolean hasEnoughIngredients = true;
         int quantity = (int) quantitySpinner.getValue();
+        Map<Integer, Ingredient> ingredients = controller.getIngredientsByIds(requiredIngredients.keySet());
 
         for (Map.Entry<Integer, Double> entry : requiredIngredients.entrySet()) {
-            Ingredient ingredient = controller.getIngredientById(entry.getKey());
+            Ingredient ingredient = ingredients.get(entry.getKey());
             if (ingredient != null) {
                 double requiredPerDish = entry.getValue();
                 double totalRequired = requiredPerDish * quantity;
-                String status = ingredient.getQuantityInStock() >= totalRequired ? 
+                double availableStock = Math.max(0,
+                    ingredient.getQuantityInStock() - heldElsewhere.getOrDefault(entry.getKey(), 0.0));
+                String status = availableStock >= totalRequired ? 
                     "Available" : "Insufficient Stock";
                 if (status.equals("Insufficient Stock")) {
                     hasEnoughIngredients = false;
@@ -285,7 +344,7 @@ public class OrderPanel extends JPanel {
                 Object[] row = {
                     ingredient.getName(),
                     String.format("%.2f %s", totalRequired, ingredient.getUnitName()),
-                    String.format("%.2f %s", ingredient.getQuantityInStock(), ingredient.getUnitName()),
+                    String.format("%.2f %s", availableStock, ingredient.getUnitName()),
                     status
                 };
                 ingredientModel.addRow(row);
@@ -351,6 +410,10 @@ public class OrderPanel extends JPanel {
             orderItems.remove(selectedRow);
             itemsModel.removeRow(selectedRow);
             updateTotal();
+            // Give back what the removed item was holding
+            if (orderItems.isEmpty() || !controller.holdCart(cartId, orderItems)) {
+                controller.releaseCart(cartId);
+            }
         }
     }
 
@@ -358,6 +421,7 @@ public class OrderPanel extends JPanel {
         itemsModel.setRowCount(0);
         orderItems.clear();
         updateTotal();
+        controller.releaseCart(cartId);
     }
 
     private void updateTotal() {
@@ -433,6 +497,7 @@ public class OrderPanel extends JPanel {
             order.setOrderType(orderType);
             order.setOrderStatus("In Progress");
             order.setPaymentStatus("Pending");
+            order.setCartId(cartId);
             
             // Create list of employee IDs
             List<Integer> employeeIds = new ArrayList<>();
@@ -445,6 +510,7 @@ public class OrderPanel extends JPanel {
                     "Success",
                     JOptionPane.INFORMATION_MESSAGE);
                 clearOrder();
+                cartId = UUID.randomUUID().toString();
                 dialog.dispose();
             } else {
                 JOptionPane.showMessageDialog(this,
@@ -517,6 +583,24 @@ public class OrderPanel extends JPanel {
         return button;
     }
 
+    private class PortionsRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            if (value instanceof Dish dish) {
+                int portions = controller.getPortionsAvailable(dish.getDishId());
+                if (portions == 0) {
+                    setText(dish + " (out of stock)");
+                    setForeground(Color.GRAY);
+                } else if (portions != RestaurantController.UNLIMITED_PORTIONS) {
+                    setText(dish + " (" + portions + " left)");
+                }
+            }
+            return this;
+        }
+    }
+
     private void showHelp() {
         HelpDialog helpDialog = new HelpDialog(SwingUtilities.getWindowAncestor(this), "Orders");
         helpDialog.setVisible(true);
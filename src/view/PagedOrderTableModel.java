@@ -0,0 +1,127 @@
+package view;
+
+import controller.RestaurantController;
+import model.Order;
+import javax.swing.JComponent;
+import javax.swing.JProgressBar;
+import javax.swing.table.AbstractTableModel;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+// Order history table that pulls orders from the database one keyset page at a time.
+// Only the summary columns are kept per row, so rows already scrolled past stay cheap.
+// Pages are fetched off the EDT; at most one page request is in flight at a time.
+public class PagedOrderTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {
+        "Order Date", "Customer Name", "Order Type",
+        "Status", "Total Amount", "Payment Status"
+    };
+
+    private final RestaurantController controller;
+    private final int pageSize;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final List<Object[]> rows = new ArrayList<>();
+    private final List<Integer> orderIds = new ArrayList<>();
+    private final AsyncLoader<List<Order>> pageLoader;
+
+    // Keyset of the last loaded row; the next page starts strictly after it
+    private Timestamp lastOrderDateTime = null;
+    private int lastOrderId = 0;
+    private boolean hasMore = true;
+
+    public PagedOrderTableModel(RestaurantController controller, int pageSize, JComponent owner) {
+        this.controller = controller;
+        this.pageSize = pageSize;
+        this.pageLoader = new AsyncLoader<>(owner, "order history");
+    }
+
+    public JProgressBar getLoadingIndicator() {
+        return pageLoader.getIndicator();
+    }
+
+    public void reload() {
+        // Drop any page still loading for the old keyset
+        pageLoader.cancel();
+        int oldSize = rows.size();
+        rows.clear();
+        orderIds.clear();
+        lastOrderDateTime = null;
+        lastOrderId = 0;
+        hasMore = true;
+        if (oldSize > 0) {
+            fireTableRowsDeleted(0, oldSize - 1);
+        }
+        loadNextPage();
+    }
+
+    public void loadNextPage() {
+        if (!hasMore || pageLoader.isLoading()) {
+            return;
+        }
+        Timestamp afterDateTime = lastOrderDateTime;
+        int afterOrderId = lastOrderId;
+        pageLoader.load(controller.async(() -> controller.getOrdersPage(afterDateTime, afterOrderId, pageSize)),
+            this::appendPage);
+    }
+
+    public void appendPage(List<Order> page) {
+        if (page.size() < pageSize) {
+            hasMore = false;
+        }
+        if (page.isEmpty()) {
+            return;
+        }
+
+        int firstRow = rows.size();
+        for (Order order : page) {
+            orderIds.add(order.getOrderId());
+            rows.add(new Object[] {
+                dateFormat.format(order.getOrderDateTime()),
+                order.getCustomerName(),
+                order.getOrderType(),
+                order.getOrderStatus(),
+                String.format("₱%.2f", order.getTotalAmount()),
+                order.getPaymentStatus()
+            });
+        }
+        Order last = page.get(page.size() - 1);
+        lastOrderDateTime = last.getOrderDateTime();
+        lastOrderId = last.getOrderId();
+        fireTableRowsInserted(firstRow, rows.size() - 1);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public int getOrderIdAt(int row) {
+        return orderIds.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return rows.get(row)[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
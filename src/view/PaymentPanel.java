@@ -17,9 +17,11 @@ public class PaymentPanel extends JPanel {
     private JTable ordersTable;
     private DefaultTableModel tableModel;
     private List<Integer> orderIds = new ArrayList<>();
+    private AsyncLoader<List<Order>> ordersLoader;
 
     public PaymentPanel(RestaurantController controller) {
         this.controller = controller;
+        this.ordersLoader = new AsyncLoader<>(this, "unpaid orders");
         setLayout(new BorderLayout(10, 10));
         initComponents();
         loadUnpaidOrders();
@@ -68,6 +70,7 @@ public class PaymentPanel extends JPanel {
         JButton helpButton = createStyledButton("Help", new Color(108, 117, 125));
         helpButton.addActionListener(e -> showHelpDialog());
         
+        buttonPanel.add(ordersLoader.getIndicator());
         buttonPanel.add(processButton);
         buttonPanel.add(refreshButton);
         buttonPanel.add(helpButton);
@@ -112,17 +115,19 @@ public class PaymentPanel extends JPanel {
     }
 
     private void loadUnpaidOrders() {
+        ordersLoader.load(controller.async(controller::getAllOrders), this::showUnpaidOrders);
+    }
+
+    private void showUnpaidOrders(List<Order> orders) {
         tableModel.setRowCount(0);
         orderIds.clear();
-        List<Order> orders = controller.getAllOrders();
-        
         for (Order order : orders) {
             if ("Pending".equals(order.getPaymentStatus())) {
-                Customer customer = controller.getCustomerById(order.getCustomerId());
-                double total = controller.calculateOrderTotal(order.getOrderId());
+                // Customer name and items come back with the order, so no per-row lookups here
+                double total = order.getItemsTotal();
                 
                 Object[] row = {
-                    customer.getFirstName() + " " + customer.getLastName(),
+                    order.getCustomerName(),
                     order.getOrderType(),
                     order.getOrderDateTime(),
                     String.format("₱%.2f", total),
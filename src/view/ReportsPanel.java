@@ -6,10 +6,12 @@ import model.OrderItem;
 import model.Customer;
 import model.Employee;
 import model.Inventory;
+import model.ReportPeriod;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.Date;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -26,9 +28,11 @@ public class ReportsPanel extends JPanel {
     private final JTextField monthField;
     private final JTextField yearField;
     private final JLabel summaryLabel;
+    private final AsyncLoader<DefaultTableModel> reportLoader;
 
     public ReportsPanel(RestaurantController controller) {
         this.controller = controller;
+        this.reportLoader = new AsyncLoader<>(this, "report");
         setLayout(new BorderLayout());
 
         // Create control panel
@@ -59,6 +63,7 @@ public class ReportsPanel extends JPanel {
         controlPanel.add(new JLabel("Year (0 to skip):"));
         controlPanel.add(yearField);
         controlPanel.add(generateButton);
+        controlPanel.add(reportLoader.getIndicator());
 
         // Create report panel
         reportPanel = new JPanel(new BorderLayout());
@@ -90,6 +95,8 @@ public class ReportsPanel extends JPanel {
     }
 
     private void updateReportPanel() {
+        // A report still loading for the previous type would not fit the new columns
+        reportLoader.cancel();
         reportPanel.removeAll();
         String selectedReport = (String) reportTypeCombo.getSelectedItem();
         
@@ -104,7 +111,7 @@ public class ReportsPanel extends JPanel {
         reportPanel.repaint();
     }
 
-    private String getDatePattern() {
+    private ReportPeriod getReportPeriod() {
         try {
             int day = Integer.parseInt(dayField.getText().trim());
             int month = Integer.parseInt(monthField.getText().trim());
@@ -122,13 +129,11 @@ public class ReportsPanel extends JPanel {
                 throw new IllegalArgumentException("Day must be between 0 and 31");
             }
 
-            String yearStr = (year == 0) ? "%" : String.format("%04d", year);
-            String monthStr = (month == 0) ? "%" : String.format("%02d", month);
-            String dayStr = (day == 0) ? "%" : String.format("%02d", day);
-
-            return String.format("%s-%s-%s", yearStr, monthStr, dayStr);
+            return ReportPeriod.of(year, month, day);
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("Please enter valid numbers");
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Please enter a valid date");
         }
     }
 
@@ -182,17 +187,25 @@ public class ReportsPanel extends JPanel {
 
     private void generateReport() {
         try {
-            String datePattern = getDatePattern();
+            ReportPeriod period = getReportPeriod();
             String selectedReport = (String) reportTypeCombo.getSelectedItem();
             
             tableModel.setRowCount(0);
             
-            switch (selectedReport) {
-                case "Sales Report" -> controller.generateSalesReport(datePattern, tableModel);
-                case "Customer Orders Report" -> controller.generateCustomerOrdersReport(datePattern, tableModel);
-                case "Employee Shifts Report" -> controller.generateEmployeeShiftsReport(datePattern, tableModel);
-                case "Profit Margin Report" -> controller.generateProfitMarginReport(datePattern, tableModel);
-            }
+            // The report is filled into a detached copy of the table model off the EDT, then swapped in
+            DefaultTableModel result = createEmptyCopy(tableModel);
+            reportLoader.load(controller.async(() -> {
+                switch (selectedReport) {
+                    case "Sales Report" -> controller.generateSalesReport(period, result);
+                    case "Customer Orders Report" -> controller.generateCustomerOrdersReport(period, result);
+                    case "Employee Shifts Report" -> controller.generateEmployeeShiftsReport(period, result);
+                    case "Profit Margin Report" -> controller.generateProfitMarginReport(period, result);
+                }
+                return result;
+            }), model -> {
+                tableModel = model;
+                reportTable.setModel(model);
+            });
         } catch (IllegalArgumentException e) {
             JOptionPane.showMessageDialog(this, 
                 e.getMessage(), 
@@ -205,4 +218,17 @@ public class ReportsPanel extends JPanel {
                 JOptionPane.ERROR_MESSAGE);
         }
     }
-} 
\ No newline at end of file
+
+    private DefaultTableModel createEmptyCopy(DefaultTableModel model) {
+        String[] columns = new String[model.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = model.getColumnName(i);
+        }
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+}
\ No newline at end of file
@@ -151,10 +151,9 @@ public class AddIngredientBatchDialog extends JDialog {
         ingredientMap = new HashMap<>();
         String query = "SELECT ingredient_id, name FROM Ingredients WHERE is_deleted = 0 ORDER BY name";
         
-        try {
-            java.sql.Connection conn = controller.getConnection();
-            java.sql.PreparedStatement stmt = conn.prepareStatement(query);
-            java.sql.ResultSet rs = stmt.executeQuery();
+        try (java.sql.Connection conn = controller.getConnection();
+             java.sql.PreparedStatement stmt = conn.prepareStatement(query);
+             java.sql.ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
                 String name = rs.getString("name");
@@ -175,10 +174,9 @@ public class AddIngredientBatchDialog extends JDialog {
         supplierMap = new HashMap<>();
         String query = "SELECT supplier_id, name FROM Suppliers WHERE is_deleted = 0 ORDER BY name";
         
-        try {
-            java.sql.Connection conn = controller.getConnection();
-            java.sql.PreparedStatement stmt = conn.prepareStatement(query);
-            java.sql.ResultSet rs = stmt.executeQuery();
+        try (java.sql.Connection conn = controller.getConnection();
+             java.sql.PreparedStatement stmt = conn.prepareStatement(query);
+             java.sql.ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
                 String name = rs.getString("name");
@@ -127,10 +127,9 @@ public class EditIngredientDialog extends JDialog {
         unitMap = new HashMap<>();
         String query = "SELECT unit_id, unit_name FROM Units ORDER BY unit_name";
         
-        try {
-            java.sql.Connection conn = controller.getConnection();
-            java.sql.PreparedStatement stmt = conn.prepareStatement(query);
-            java.sql.ResultSet rs = stmt.executeQuery();
+        try (java.sql.Connection conn = controller.getConnection();
+             java.sql.PreparedStatement stmt = conn.prepareStatement(query);
+             java.sql.ResultSet rs = stmt.executeQuery()) {
             
             while (rs.next()) {
                 String unitName = rs.getString("unit_name");